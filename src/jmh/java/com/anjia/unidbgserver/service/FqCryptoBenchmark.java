@@ -0,0 +1,142 @@
+package com.anjia.unidbgserver.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 章节解密基准：原实现（每章新建 FqCrypto/Cipher、拷贝 IV 与密文、InputStreamReader 解压）
+ * 与当前实现（按 keyver 缓存的密钥 + 线程内复用 Cipher/缓冲区）对比。
+ * <p>
+ * 运行：mvn -Pbenchmark compile exec:exec -Djmh.includes=FqCryptoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FqCryptoBenchmark {
+
+    private static final String KEY_HEX = "0123456789ABCDEF0123456789ABCDEF";
+
+    /**
+     * 章节正文字符数（常见章节 2k~10k 字）
+     */
+    @Param({"3000", "12000"})
+    public int chars;
+
+    private String encryptedContent;
+    private byte[] encryptedBytes;
+    private SecretKeySpec cachedKey;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        StringBuilder html = new StringBuilder("<h1><blk>第一章</blk></h1>");
+        while (html.length() < chars) {
+            html.append("<p><blk>");
+            for (int i = 0; i < 40; i++) {
+                html.append((char) ('一' + random.nextInt(2000)));
+            }
+            html.append("</blk></p>");
+        }
+
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(html.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] iv = new byte[16];
+        random.nextBytes(iv);
+        byte[] cipherText = new FqCrypto(KEY_HEX).encrypt(gz.toByteArray(), iv);
+        byte[] payload = new byte[iv.length + cipherText.length];
+        System.arraycopy(iv, 0, payload, 0, iv.length);
+        System.arraycopy(cipherText, 0, payload, iv.length, cipherText.length);
+
+        encryptedContent = Base64.getEncoder().encodeToString(payload);
+        encryptedBytes = encryptedContent.getBytes(StandardCharsets.ISO_8859_1);
+        cachedKey = FqCrypto.aesKey(KEY_HEX);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String legacy() throws Exception {
+        return legacyDecryptAndDecompress(encryptedContent, KEY_HEX);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String hexKey() throws Exception {
+        return FqCrypto.decryptAndDecompressContent(encryptedContent, KEY_HEX);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String cachedKey() throws Exception {
+        return FqCrypto.decryptAndDecompressContent(encryptedBytes, cachedKey);
+    }
+
+    /**
+     * 多线程下原实现的 Cipher.getInstance 会在 Provider 查找上竞争
+     */
+    @Benchmark
+    @Threads(4)
+    public String legacyContended() throws Exception {
+        return legacyDecryptAndDecompress(encryptedContent, KEY_HEX);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cachedKeyContended() throws Exception {
+        return FqCrypto.decryptAndDecompressContent(encryptedBytes, cachedKey);
+    }
+
+    /**
+     * 优化前的实现（保留作对照）
+     */
+    private static String legacyDecryptAndDecompress(String encryptedContent, String keyHex) throws Exception {
+        SecretKeySpec secretKey = new SecretKeySpec(FqCrypto.hexStringToByteArray(keyHex), "AES");
+        byte[] decodedData = Base64.getDecoder().decode(encryptedContent);
+        byte[] iv = new byte[16];
+        System.arraycopy(decodedData, 0, iv, 0, 16);
+        byte[] encryptedData = new byte[decodedData.length - 16];
+        System.arraycopy(decodedData, 16, encryptedData, 0, encryptedData.length);
+
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+        byte[] decryptedBytes = cipher.doFinal(encryptedData);
+
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(decryptedBytes));
+             InputStreamReader reader = new InputStreamReader(gzipStream, StandardCharsets.UTF_8)) {
+            StringBuilder result = new StringBuilder();
+            char[] buffer = new char[1024];
+            int charsRead;
+            while ((charsRead = reader.read(buffer)) != -1) {
+                result.append(buffer, 0, charsRead);
+            }
+            return result.toString();
+        }
+    }
+}
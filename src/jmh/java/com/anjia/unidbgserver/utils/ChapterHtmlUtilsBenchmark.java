@@ -0,0 +1,105 @@
+package com.anjia.unidbgserver.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 章节正文/标题提取基准：原实现（每次编译正则，正文与标题各扫描一遍）与单次扫描对比
+ * <p>
+ * 运行：mvn -Pbenchmark compile exec:exec -Djmh.includes=ChapterHtmlUtilsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChapterHtmlUtilsBenchmark {
+
+    /**
+     * 章节 HTML 字符数（常见章节 2k~10k 字）
+     */
+    @Param({"3000", "12000"})
+    public int chars;
+
+    private String html;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("<h1><blk e_order=\"0\">第一章 开端</blk></h1>");
+        int order = 1;
+        while (sb.length() < chars) {
+            sb.append("<p idx=\"").append(order).append("\"><blk e_order=\"").append(order).append("\">");
+            for (int i = 0; i < 40; i++) {
+                sb.append((char) ('一' + random.nextInt(2000)));
+            }
+            sb.append("</blk></p>");
+            order++;
+        }
+        html = sb.toString();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        String text = legacyExtractText(html);
+        bh.consume(text);
+        bh.consume(legacyExtractTitle(html));
+        bh.consume(text.length());
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        ChapterHtmlUtils.ChapterText parsed = ChapterHtmlUtils.parse(html);
+        bh.consume(parsed.getText());
+        bh.consume(parsed.getTitle());
+        bh.consume(parsed.getWordCount());
+    }
+
+    /**
+     * 优化前的正文提取（保留作对照）
+     */
+    private static String legacyExtractText(String htmlContent) {
+        StringBuilder textBuilder = new StringBuilder();
+        Pattern blkPattern = Pattern.compile("<blk[^>]*>([^<]*)</blk>", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = blkPattern.matcher(htmlContent);
+        while (matcher.find()) {
+            String text = matcher.group(1);
+            if (text != null && !text.trim().isEmpty()) {
+                textBuilder.append(text.trim()).append("\n");
+            }
+        }
+        if (textBuilder.length() == 0) {
+            String text = htmlContent.replaceAll("<[^>]+>", "").trim();
+            if (!text.isEmpty()) {
+                textBuilder.append(text);
+            }
+        }
+        return textBuilder.toString().trim();
+    }
+
+    /**
+     * 优化前的标题提取（保留作对照）
+     */
+    private static String legacyExtractTitle(String htmlContent) {
+        Pattern titlePattern = Pattern.compile("<h1[^>]*>.*?<blk[^>]*>([^<]*)</blk>.*?</h1>",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        Matcher titleMatcher = titlePattern.matcher(htmlContent);
+        return titleMatcher.find() ? titleMatcher.group(1).trim() : null;
+    }
+}
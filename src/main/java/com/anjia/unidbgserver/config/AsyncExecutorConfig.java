@@ -38,17 +38,59 @@ public class AsyncExecutorConfig {
     }
 
     /**
-     * 章节预取/目录预取用的独立线程池：
-     * 这些任务会被业务线程 join 等待，必须与业务线程池隔离，避免线程耗尽导致死锁。
+     * 交互式阅读线程池：单章内容、目录、书籍信息（Legado 打开书/翻页）。
+     */
+    @Bean(name = "fqInteractiveExecutor")
+    @ConditionalOnMissingBean(name = "fqInteractiveExecutor")
+    public InstrumentedTaskExecutor fqInteractiveExecutor(FQExecutorProperties executorProperties) {
+        return buildExecutor("interactive", "fq-interactive-", executorProperties.getInteractive());
+    }
+
+    /**
+     * 批量下载线程池：与交互式阅读隔离，长时间批量下载不会饿死单章请求。
+     */
+    @Bean(name = "fqBulkExecutor")
+    @ConditionalOnMissingBean(name = "fqBulkExecutor")
+    public InstrumentedTaskExecutor fqBulkExecutor(FQExecutorProperties executorProperties) {
+        return buildExecutor("bulk", "fq-bulk-", executorProperties.getBulk());
+    }
+
+    /**
+     * 搜索线程池：两阶段搜索含随机等待，单独隔离避免拖慢阅读。
+     */
+    @Bean(name = "fqSearchExecutor")
+    @ConditionalOnMissingBean(name = "fqSearchExecutor")
+    public InstrumentedTaskExecutor fqSearchExecutor(FQExecutorProperties executorProperties) {
+        return buildExecutor("search", "fq-search-", executorProperties.getSearch());
+    }
+
+    /**
+     * 章节预取用的独立线程池：
+     * 负责批量预取的上游请求与解密/文本提取。
      */
     @Bean(name = "fqPrefetchExecutor")
     @ConditionalOnMissingBean(name = "fqPrefetchExecutor")
-    public Executor fqPrefetchExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(2);
-        executor.setQueueCapacity(256);
-        executor.setThreadNamePrefix("fq-prefetch-");
+    public InstrumentedTaskExecutor fqPrefetchExecutor(FQExecutorProperties executorProperties) {
+        return buildExecutor("prefetch", "fq-prefetch-", executorProperties.getPrefetch());
+    }
+
+    /**
+     * 章节解码线程池：同一批次内的章节并行解密/解压/提取正文，批次耗时取决于最慢的一章而不是所有章节之和。
+     */
+    @Bean(name = "fqDecodeExecutor")
+    @ConditionalOnMissingBean(name = "fqDecodeExecutor")
+    public InstrumentedTaskExecutor fqDecodeExecutor(FQExecutorProperties executorProperties) {
+        return buildExecutor("decode", "fq-decode-", executorProperties.getDecode());
+    }
+
+    private InstrumentedTaskExecutor buildExecutor(String workload, String threadNamePrefix, FQExecutorProperties.Pool pool) {
+        InstrumentedTaskExecutor executor = new InstrumentedTaskExecutor(workload);
+        executor.setCorePoolSize(Math.max(1, pool.getCoreSize()));
+        executor.setMaxPoolSize(Math.max(executor.getCorePoolSize(), pool.getMaxSize()));
+        executor.setQueueCapacity(Math.max(0, pool.getQueueCapacity()));
+        executor.setKeepAliveSeconds(Math.max(0, pool.getKeepAliveSeconds()));
+        executor.setRejectionPolicy(pool.getRejectionPolicy());
+        executor.setThreadNamePrefix(threadNamePrefix);
         executor.initialize();
         return executor;
     }
@@ -0,0 +1,33 @@
+package com.anjia.unidbgserver.config;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * 本地缓存配置
+ * Java 8 下 Caffeine 没有系统调度器，过期条目只会在读写时顺带清理；
+ * 这里提供一个单线程调度器，让过期条目按时主动移除
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean(name = "fqCacheMaintenanceExecutor", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService fqCacheMaintenanceExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "fq-cache-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @Bean(name = "fqCacheScheduler")
+    public Scheduler fqCacheScheduler(ScheduledExecutorService fqCacheMaintenanceExecutor) {
+        return Scheduler.forScheduledExecutorService(fqCacheMaintenanceExecutor);
+    }
+}
@@ -0,0 +1,46 @@
+package com.anjia.unidbgserver.config;
+
+import com.anjia.unidbgserver.service.RequestDeadline;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * 按请求截止时间收紧上游连接/读取超时：
+ * 调用方剩余时间不足配置的超时时，以剩余时间为准；已取消/超时的请求不再发起连接。
+ */
+public class DeadlineAwareRequestFactory extends SimpleClientHttpRequestFactory {
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public DeadlineAwareRequestFactory(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        setConnectTimeout(connectTimeoutMs);
+        setReadTimeout(readTimeoutMs);
+    }
+
+    @Override
+    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+        super.prepareConnection(connection, httpMethod);
+
+        RequestDeadline deadline = RequestDeadline.current();
+        if (!deadline.isBounded()) {
+            return;
+        }
+        deadline.check("上游请求");
+
+        long remainingMs = Math.max(1L, deadline.remainingMillis());
+        connection.setConnectTimeout(cap(connectTimeoutMs, remainingMs));
+        connection.setReadTimeout(cap(readTimeoutMs, remainingMs));
+    }
+
+    private static int cap(int configuredMs, long remainingMs) {
+        if (configuredMs <= 0) {
+            return (int) Math.min(Integer.MAX_VALUE, remainingMs);
+        }
+        return (int) Math.min(configuredMs, remainingMs);
+    }
+}
@@ -0,0 +1,38 @@
+package com.anjia.unidbgserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 准入控制（过载保护）配置
+ */
+@Data
+@ConfigurationProperties(prefix = "fq.admission")
+public class FQAdmissionProperties {
+
+    /**
+     * 是否启用准入控制：过载时直接返回 429，而不是排队等到异步超时
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预估等待时间上限（ms），超过则拒绝新请求。
+     * 应明显小于 spring.mvc.async.request-timeout，保证延迟有界。
+     */
+    private long maxEstimatedWaitMs = 20_000L;
+
+    /**
+     * 队列使用率上限（0~1），超过则拒绝新请求
+     */
+    private double maxQueueUtilization = 0.9d;
+
+    /**
+     * Retry-After 最小值（秒）
+     */
+    private int retryAfterMinSeconds = 1;
+
+    /**
+     * Retry-After 最大值（秒）
+     */
+    private int retryAfterMaxSeconds = 60;
+}
@@ -97,6 +97,16 @@ public class FQApiProperties {
      */
     private long deviceRotateCooldownMs = 30_000L;
 
+    /**
+     * registerkey 本地持久化文件（按设备保存各keyver，重启后无需先请求上游），为空表示不持久化
+     */
+    private String registerKeyCacheFile = "cache/registerkey.json";
+
+    /**
+     * registerkey 后台刷新间隔（毫秒，默认 6 小时），启动预热后按该间隔提前刷新，<= 0 表示只在缺失时刷新
+     */
+    private long registerKeyRefreshIntervalMs = 6 * 60 * 60 * 1000L;
+
     @Data
     public static class DeviceProfile {
         /**
@@ -47,20 +47,135 @@ public class FQDownloadProperties {
     private int chapterPrefetchSize = 30;
 
     /**
-     * 章节内容缓存最大条数
+     * 预取章节是否延迟解密：缓存密文 + keyVersion，首次被读取时才解密并提取正文
+     */
+    private boolean chapterLazyDecrypt = true;
+
+    /**
+     * 顺序阅读预读开关：读者接近已缓存窗口末尾时，后台提前拉取下一个窗口
+     */
+    private boolean chapterReadAheadEnabled = true;
+
+    /**
+     * 最小预读距离（章）：距窗口末尾不足该章数时开始预读
+     */
+    private int chapterReadAheadMinDistance = 5;
+
+    /**
+     * 最大预读距离（章）：按阅读速度和上游耗时自适应，不超过该值
+     */
+    private int chapterReadAheadMaxDistance = 60;
+
+    /**
+     * 上游限流积压超过该值（ms）时不再启动预读任务，把配额留给读者正在等待的请求
+     */
+    private long readAheadMaxLimiterBacklogMs = 2000L;
+
+    /**
+     * 顺序阅读检测最多跟踪的读者数（书籍 + 设备），超出后淘汰最久未读的
+     */
+    private long chapterReadAheadMaxReaders = 10_000L;
+
+    /**
+     * 章节内容缓存最大条数（仅在 chapterCacheMaxBytes <= 0 时按条数限制）
      */
     private int chapterCacheMaxEntries = 500;
 
+    /**
+     * 章节内容缓存内存上限（字节，按 rawContent/txtContent 等字符串实际占用估算），<= 0 表示按条数限制
+     */
+    private long chapterCacheMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 章节堆外缓存容量（字节，压缩存储，作为堆内缓存的二级缓存），<= 0 表示不启用
+     */
+    private long chapterOffHeapMaxBytes = 128L * 1024 * 1024;
+
+    /**
+     * 章节堆外缓存单个 slab 大小（字节），空间按 slab 整块回收
+     */
+    private int chapterOffHeapSlabBytes = 4 * 1024 * 1024;
+
+    /**
+     * 章节磁盘缓存目录（追加写分段文件，重启后可恢复），为空表示不启用
+     */
+    private String chapterDiskCacheDir = "cache/chapters";
+
+    /**
+     * 章节磁盘缓存容量上限（字节），超出后按段淘汰最旧数据，<= 0 表示不启用
+     */
+    private long chapterDiskCacheMaxBytes = 1024L * 1024 * 1024;
+
+    /**
+     * 章节磁盘缓存单个段文件大小（字节）
+     */
+    private long chapterDiskCacheSegmentBytes = 64L * 1024 * 1024;
+
+    /**
+     * 章节磁盘缓存 TTL（ms），内容版本与目录不一致时也会失效
+     */
+    private long chapterDiskCacheTtlMs = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * 章节磁盘缓存后台整理间隔（ms）
+     */
+    private long chapterDiskCacheCompactIntervalMs = 60_000L;
+
     /**
      * 章节缓存 TTL（ms）
      */
     private long chapterCacheTtlMs = 30 * 60 * 1000L;
 
     /**
-     * 目录缓存 TTL（ms）
+     * 书籍目录缓存最大条数（书籍数）
+     */
+    private int directoryCacheMaxEntries = 64;
+
+    /**
+     * 目录缓存 TTL（ms，按最后一次访问计算）
      */
     private long directoryCacheTtlMs = 30 * 60 * 1000L;
 
+    /**
+     * 目录后台条件刷新间隔（ms，按 md5 判断是否变化），<= 0 表示不刷新
+     */
+    private long directoryRefreshIntervalMs = 5 * 60 * 1000L;
+
+    /**
+     * 目录/书籍信息超过刷新间隔后仍可直接返回旧数据的宽限期（ms，期间后台刷新），<= 0 表示超期即等待刷新
+     */
+    private long directoryStaleGraceMs = 30 * 60 * 1000L;
+
+    /**
+     * 负缓存 TTL（ms）：上游对书籍/查询返回错误码后，在此期间直接失败，<= 0 表示不启用
+     */
+    private long negativeCacheTtlMs = 60_000L;
+
+    /**
+     * 负缓存 TTL（ms）：批量接口未返回的章节（不存在/无权限）
+     */
+    private long negativeCacheNotFoundTtlMs = 5 * 60 * 1000L;
+
+    /**
+     * 负缓存最大条数
+     */
+    private int negativeCacheMaxEntries = 10_000;
+
+    /**
+     * 整本下载任务检查点目录（每个任务一个 JSON 文件，重启后从检查点继续），为空表示不持久化
+     */
+    private String downloadJobDir = "cache/jobs";
+
+    /**
+     * 同时运行的整本下载任务数
+     */
+    private int downloadJobMaxConcurrent = 1;
+
+    /**
+     * 已结束的下载任务保留时间（ms），超过后清理检查点，<= 0 表示一直保留
+     */
+    private long downloadJobRetentionMs = 24 * 60 * 60 * 1000L;
+
     /**
      * 自动重启开关：当连续异常达到阈值后，主动退出进程（由 Docker/systemd 拉起）。
      */
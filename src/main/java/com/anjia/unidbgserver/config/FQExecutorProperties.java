@@ -0,0 +1,92 @@
+package com.anjia.unidbgserver.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 按负载类型隔离的线程池配置（舱壁隔离）
+ * <p>
+ * 交互式阅读、批量下载、搜索、预取各自使用独立线程池与队列，
+ * 避免一次大批量下载把单章阅读请求饿死。
+ */
+@Data
+@ConfigurationProperties(prefix = "fq.executor")
+public class FQExecutorProperties {
+
+    /**
+     * 交互式阅读：单章内容、目录、书籍信息
+     */
+    private Pool interactive = new Pool(4, 4, 64, RejectionPolicy.ABORT);
+
+    /**
+     * 批量下载：/chapters/batch 等批量接口
+     */
+    private Pool bulk = new Pool(2, 2, 32, RejectionPolicy.ABORT);
+
+    /**
+     * 搜索：两阶段搜索（包含阶段间的随机等待）
+     */
+    private Pool search = new Pool(2, 2, 32, RejectionPolicy.ABORT);
+
+    /**
+     * 章节预取：批量预取与解密
+     */
+    private Pool prefetch = new Pool(2, 2, 256, RejectionPolicy.ABORT);
+
+    /**
+     * 章节解码：批量内逐章解密、解压与正文提取（纯 CPU），默认线程数等于 CPU 核数；
+     * 队列满时由提交线程自行解码
+     */
+    private Pool decode = new Pool(Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().availableProcessors(), 256, RejectionPolicy.CALLER_RUNS);
+
+    @Data
+    public static class Pool {
+
+        /**
+         * 核心线程数
+         */
+        private int coreSize;
+
+        /**
+         * 最大线程数
+         */
+        private int maxSize;
+
+        /**
+         * 队列容量（超出后按拒绝策略处理）
+         */
+        private int queueCapacity;
+
+        /**
+         * 空闲线程存活时间（秒）
+         */
+        private int keepAliveSeconds = 60;
+
+        /**
+         * 队列满时的拒绝策略
+         */
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+        public Pool() {
+        }
+
+        public Pool(int coreSize, int maxSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+            this.coreSize = coreSize;
+            this.maxSize = maxSize;
+            this.queueCapacity = queueCapacity;
+            this.rejectionPolicy = rejectionPolicy;
+        }
+    }
+
+    public enum RejectionPolicy {
+        /**
+         * 直接拒绝（调用方收到 RejectedExecutionException，快速失败）
+         */
+        ABORT,
+        /**
+         * 由提交线程自行执行（自然形成背压，但会占用调用方线程）
+         */
+        CALLER_RUNS
+    }
+}
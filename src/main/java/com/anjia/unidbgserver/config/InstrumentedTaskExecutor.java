@@ -0,0 +1,207 @@
+package com.anjia.unidbgserver.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 带饱和度统计的线程池：
+ * 记录提交/完成/拒绝/调用方执行次数，以及任务排队等待与执行耗时的滑动平均值。
+ */
+public class InstrumentedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final String workload;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+
+    /**
+     * EWMA（微秒），CAS 更新
+     */
+    private final AtomicLong avgRunMicros = new AtomicLong();
+    private final AtomicLong avgQueueWaitMicros = new AtomicLong();
+
+    /**
+     * 当前线程本次提交是否触发了拒绝策略（拒绝策略在提交线程内同步执行）
+     */
+    private final ThreadLocal<Boolean> rejectedInCall = new ThreadLocal<>();
+
+    /**
+     * 当前线程是否正在以 CALLER_RUNS 方式执行被拒绝的任务
+     */
+    private final ThreadLocal<Boolean> runningInCaller = new ThreadLocal<>();
+
+    public InstrumentedTaskExecutor(String workload) {
+        this.workload = workload;
+        setTaskDecorator(this::instrument);
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    /**
+     * 设置拒绝策略，并在其外层统计拒绝次数
+     */
+    public void setRejectionPolicy(FQExecutorProperties.RejectionPolicy policy) {
+        RejectedExecutionHandler delegate = policy == FQExecutorProperties.RejectionPolicy.CALLER_RUNS
+            ? new ThreadPoolExecutor.CallerRunsPolicy()
+            : new ThreadPoolExecutor.AbortPolicy();
+        setRejectedExecutionHandler((r, executor) -> {
+            rejected.increment();
+            rejectedInCall.set(Boolean.TRUE);
+            Boolean previous = runningInCaller.get();
+            runningInCaller.set(Boolean.TRUE);
+            try {
+                delegate.rejectedExecution(r, executor);
+            } finally {
+                restore(runningInCaller, previous);
+            }
+        });
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        accept(() -> {
+            super.execute(task);
+            return null;
+        });
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return accept(() -> super.submit(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return accept(() -> super.submit(task));
+    }
+
+    @Override
+    public ListenableFuture<?> submitListenable(Runnable task) {
+        return accept(() -> super.submitListenable(task));
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+        return accept(() -> super.submitListenable(task));
+    }
+
+    /**
+     * 仅在线程池真正接收任务后计入提交数；被拒绝（含 CALLER_RUNS 回退）的任务只计入拒绝数。
+     * CALLER_RUNS 时任务在提交线程内执行，其中嵌套的提交不能覆盖外层的拒绝标记，结束后恢复原值
+     */
+    private <T> T accept(Supplier<T> submission) {
+        Boolean previous = rejectedInCall.get();
+        rejectedInCall.remove();
+        try {
+            T result = submission.get();
+            if (rejectedInCall.get() == null) {
+                submitted.increment();
+            }
+            return result;
+        } finally {
+            restore(rejectedInCall, previous);
+        }
+    }
+
+    private static void restore(ThreadLocal<Boolean> flag, Boolean previous) {
+        if (previous == null) {
+            flag.remove();
+        } else {
+            flag.set(previous);
+        }
+    }
+
+    private Runnable instrument(Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        return () -> {
+            if (runningInCaller.get() != null) {
+                // CALLER_RUNS：未经过线程池排队，只计入 callerRuns，不计入完成数和耗时统计
+                try {
+                    task.run();
+                } finally {
+                    callerRuns.increment();
+                }
+                return;
+            }
+            long startedAt = System.nanoTime();
+            ewma(avgQueueWaitMicros, TimeUnit.NANOSECONDS.toMicros(startedAt - enqueuedAt));
+            try {
+                task.run();
+            } finally {
+                ewma(avgRunMicros, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+                completed.increment();
+            }
+        };
+    }
+
+    private static void ewma(AtomicLong average, long sample) {
+        // alpha = 1/8
+        average.getAndUpdate(prev -> prev == 0L ? sample : prev + ((sample - prev) >> 3));
+    }
+
+    public int getQueueDepth() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        return executor.getQueue().size();
+    }
+
+    public int getQueueRemainingCapacity() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        return executor.getQueue().remainingCapacity();
+    }
+
+    public long getAvgRunMs() {
+        return TimeUnit.MICROSECONDS.toMillis(avgRunMicros.get());
+    }
+
+    public long getAvgQueueWaitMs() {
+        return TimeUnit.MICROSECONDS.toMillis(avgQueueWaitMicros.get());
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    /**
+     * 获取线程池状态快照
+     */
+    public Map<String, Object> snapshot() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        int queueDepth = executor.getQueue().size();
+        int queueCapacity = queueDepth + executor.getQueue().remainingCapacity();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("workload", workload);
+        status.put("coreSize", executor.getCorePoolSize());
+        status.put("maxSize", executor.getMaximumPoolSize());
+        status.put("poolSize", executor.getPoolSize());
+        status.put("active", executor.getActiveCount());
+        status.put("queueDepth", queueDepth);
+        status.put("queueCapacity", queueCapacity);
+        status.put("queueUtilization", queueCapacity > 0 ? (double) queueDepth / queueCapacity : 0d);
+        status.put("submitted", submitted.sum());
+        status.put("completed", completed.sum());
+        status.put("rejected", rejected.sum());
+        status.put("callerRuns", callerRuns.sum());
+        status.put("avgRunMs", getAvgRunMs());
+        status.put("avgQueueWaitMs", getAvgQueueWaitMs());
+        return status;
+    }
+}
@@ -10,9 +10,10 @@ public class RestTemplateConfig {
 
     @Bean
     public RestTemplate restTemplate(FQDownloadProperties downloadProperties) {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(safeToInt(downloadProperties.getUpstreamConnectTimeoutMs(), 8000));
-        factory.setReadTimeout(safeToInt(downloadProperties.getUpstreamReadTimeoutMs(), 15000));
+        // 连接/读取超时会按请求截止时间进一步收紧
+        SimpleClientHttpRequestFactory factory = new DeadlineAwareRequestFactory(
+            safeToInt(downloadProperties.getUpstreamConnectTimeoutMs(), 8000),
+            safeToInt(downloadProperties.getUpstreamReadTimeoutMs(), 15000));
         return new RestTemplate(factory);
     }
 
@@ -0,0 +1,53 @@
+package com.anjia.unidbgserver.config;
+
+import com.anjia.unidbgserver.service.AdmissionControlService;
+import com.anjia.unidbgserver.web.AdmissionControlInterceptor;
+import com.anjia.unidbgserver.web.RequestDeadlineInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+
+/**
+ * Web MVC 配置：按接口所属负载类型注册准入控制，并为业务接口创建/取消请求截止时间
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Resource
+    private AdmissionControlService admissionControlService;
+
+    @Value("${spring.mvc.async.request-timeout:180000}")
+    private Duration asyncRequestTimeout;
+
+    private RequestDeadlineInterceptor requestDeadlineInterceptor;
+
+    private RequestDeadlineInterceptor requestDeadlineInterceptor() {
+        if (requestDeadlineInterceptor == null) {
+            requestDeadlineInterceptor = new RequestDeadlineInterceptor(asyncRequestTimeout.toMillis());
+        }
+        return requestDeadlineInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControlService, "interactive"))
+            .addPathPatterns("/api/fqnovel/book/**", "/api/fqnovel/chapter/**", "/api/fqnovel/chapter",
+                "/api/fqsearch/directory/**", "/api/fqsearch/directory", "/api/fqsearch/chapters/**");
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControlService, "bulk"))
+            .addPathPatterns("/api/fqnovel/chapters/batch", "/api/fqnovel/chapters/batch/stream");
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControlService, "search"))
+            .addPathPatterns("/api/fqsearch/books", "/api/fqsearch/quick");
+        registry.addInterceptor(requestDeadlineInterceptor())
+            .addPathPatterns("/api/fqnovel/**", "/api/fqsearch/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerDeferredResultInterceptors(requestDeadlineInterceptor());
+    }
+}
@@ -0,0 +1,95 @@
+package com.anjia.unidbgserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 流式批量获取章节的单条事件（NDJSON 的一行 / SSE 的一个 event）
+ * 顺序：book → chapter/error（按请求顺序）→ end
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FQBatchChapterEvent {
+
+    public static final String BOOK = "book";
+    public static final String CHAPTER = "chapter";
+    public static final String ERROR = "error";
+    public static final String END = "end";
+
+    /**
+     * 事件类型：book / chapter / error / end
+     */
+    private String type;
+
+    /**
+     * 章节键（章节位置模式下为位置，否则为 itemId），与非流式接口 chapters 的 key 一致
+     */
+    private String chapterKey;
+
+    /**
+     * 章节 itemId
+     */
+    private String itemId;
+
+    /**
+     * 章节内容（type = chapter）
+     */
+    private FQBatchChapterInfo chapter;
+
+    /**
+     * 书籍信息（type = book）
+     */
+    private FQNovelBookInfo bookInfo;
+
+    /**
+     * 请求的章节数（type = book / end）
+     */
+    private Integer totalRequested;
+
+    /**
+     * 成功章节数（type = end）
+     */
+    private Integer successCount;
+
+    /**
+     * 失败原因（type = error）
+     */
+    private String message;
+
+    public static FQBatchChapterEvent book(FQNovelBookInfo bookInfo, int totalRequested) {
+        FQBatchChapterEvent event = new FQBatchChapterEvent();
+        event.setType(BOOK);
+        event.setBookInfo(bookInfo);
+        event.setTotalRequested(totalRequested);
+        return event;
+    }
+
+    public static FQBatchChapterEvent chapter(String chapterKey, String itemId, FQBatchChapterInfo chapter) {
+        FQBatchChapterEvent event = new FQBatchChapterEvent();
+        event.setType(CHAPTER);
+        event.setChapterKey(chapterKey);
+        event.setItemId(itemId);
+        event.setChapter(chapter);
+        return event;
+    }
+
+    /**
+     * 失败事件；chapterKey 为空表示整个请求失败（随后直接 end）
+     */
+    public static FQBatchChapterEvent error(String chapterKey, String itemId, String message) {
+        FQBatchChapterEvent event = new FQBatchChapterEvent();
+        event.setType(ERROR);
+        event.setChapterKey(chapterKey);
+        event.setItemId(itemId);
+        event.setMessage(message);
+        return event;
+    }
+
+    public static FQBatchChapterEvent end(int totalRequested, int successCount) {
+        FQBatchChapterEvent event = new FQBatchChapterEvent();
+        event.setType(END);
+        event.setTotalRequested(totalRequested);
+        event.setSuccessCount(successCount);
+        return event;
+    }
+}
@@ -46,4 +46,9 @@ public class FQBatchChapterRequest {
      * 附加的请求头参数 (可选)
      */
     private java.util.Map<String, String> extraHeaders;
+
+    /**
+     * 返回格式：text（只返回纯文本）/ raw（只返回 HTML）/ all（默认，两者都返回）
+     */
+    private String format;
 }
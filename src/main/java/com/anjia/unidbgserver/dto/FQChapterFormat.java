@@ -0,0 +1,78 @@
+package com.anjia.unidbgserver.dto;
+
+import com.anjia.unidbgserver.utils.ChapterHtmlUtils;
+
+/**
+ * 章节内容返回格式（请求参数 format）
+ * 缓存中只保存章节 HTML（rawContent），纯文本（txtContent）在返回时按需提取
+ */
+public enum FQChapterFormat {
+
+    /**
+     * 只返回纯文本 txtContent
+     */
+    TEXT,
+
+    /**
+     * 只返回原始 HTML rawContent
+     */
+    RAW,
+
+    /**
+     * 两者都返回（默认，兼容旧客户端）
+     */
+    ALL;
+
+    /**
+     * format 参数无法识别时的错误信息
+     */
+    public static final String INVALID_MESSAGE = "format 参数仅支持 text / raw / all";
+
+    /**
+     * 解析请求参数（忽略大小写），为空时返回 ALL，无法识别时返回 null
+     */
+    public static FQChapterFormat parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ALL;
+        }
+        for (FQChapterFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value.trim())) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    public boolean includesText() {
+        return this != RAW;
+    }
+
+    public boolean includesRaw() {
+        return this != TEXT;
+    }
+
+    /**
+     * 由缓存中的章节生成返回对象：复制一份并按格式填充内容，不修改缓存条目
+     */
+    public FQNovelChapterInfo render(FQNovelChapterInfo chapter) {
+        FQNovelChapterInfo view = new FQNovelChapterInfo();
+        view.setChapterId(chapter.getChapterId());
+        view.setBookId(chapter.getBookId());
+        view.setAuthorName(chapter.getAuthorName());
+        view.setTitle(chapter.getTitle());
+        view.setChapterIndex(chapter.getChapterIndex());
+        view.setWordCount(chapter.getWordCount());
+        view.setUpdateTime(chapter.getUpdateTime());
+        view.setPrevChapterId(chapter.getPrevChapterId());
+        view.setNextChapterId(chapter.getNextChapterId());
+        view.setIsFree(chapter.getIsFree());
+        if (includesRaw()) {
+            view.setRawContent(chapter.getRawContent());
+        }
+        if (includesText()) {
+            String text = chapter.getTxtContent();
+            view.setTxtContent(text != null ? text : ChapterHtmlUtils.parse(chapter.getRawContent()).getText());
+        }
+        return view;
+    }
+}
@@ -0,0 +1,75 @@
+package com.anjia.unidbgserver.dto;
+
+import lombok.Data;
+
+/**
+ * 整本下载任务：进度检查点随任务一起持久化，重启后从 nextIndex 继续
+ */
+@Data
+public class FQDownloadJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 书籍ID
+     */
+    private String bookId;
+
+    /**
+     * 任务状态
+     */
+    private Status status;
+
+    /**
+     * 目录章节总数（目录刷新出新章节时随之更新）
+     */
+    private Integer totalChapters;
+
+    /**
+     * 检查点：目录中该位置之前的章节均已处理（已缓存或确认拿不到）
+     */
+    private Integer nextIndex;
+
+    /**
+     * 已缓存章节数
+     */
+    private Integer cachedChapters;
+
+    /**
+     * 上游确认拿不到的章节数（不存在/未解锁）
+     */
+    private Integer missingChapters;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String error;
+
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    private Long createdAt;
+
+    /**
+     * 最近一次更新时间（毫秒时间戳）
+     */
+    private Long updatedAt;
+
+    /**
+     * 是否已结束（完成/失败/取消）
+     */
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+}
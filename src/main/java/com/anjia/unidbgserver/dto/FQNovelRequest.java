@@ -37,4 +37,9 @@ public class FQNovelRequest {
      * 附加的请求头参数
      */
     private java.util.Map<String, String> extraHeaders;
-}
\ No newline at end of file
+
+    /**
+     * 返回格式：text（只返回纯文本）/ raw（只返回 HTML）/ all（默认，两者都返回）
+     */
+    private String format;
+}
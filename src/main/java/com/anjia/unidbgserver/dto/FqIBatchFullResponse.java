@@ -5,9 +5,12 @@ import com.anjia.unidbgserver.service.FQRegisterKeyService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.crypto.spec.SecretKeySpec;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * FQNovel 批量获取响应
@@ -40,34 +43,54 @@ public class FqIBatchFullResponse {
      */
     public List<Map.Entry<String, String>> getDecryptContents(
             FQRegisterKeyService registerKeyService) throws Exception {
-        
-        List<Map.Entry<String, String>> results = new ArrayList<>();
-        
+        return getDecryptContents(registerKeyService, Runnable::run);
+    }
+
+    /**
+     * 获取解密的内容：每个章节的解密/解压在 executor 上并行执行，结果保持原顺序
+     *
+     * @param registerKeyService RegisterKey缓存服务
+     * @param executor 解码线程池
+     * @return 章节ID和解密内容的列表（解密失败的章节被跳过）
+     */
+    public List<Map.Entry<String, String>> getDecryptContents(
+            FQRegisterKeyService registerKeyService, Executor executor) throws Exception {
+
+        List<CompletableFuture<Map.Entry<String, String>>> futures = new ArrayList<>(this.data.size());
         for (Map.Entry<String, ItemContent> entry : this.data.entrySet()) {
             String itemId = entry.getKey();
             ItemContent content = entry.getValue();
-            
-            try {
-                // 获取章节的keyVersion
-                Long contentKeyver = content.getKeyVersion();
-                log.debug("章节 {} 的keyVersion: {}", itemId, contentKeyver);
-                
-                // 获取对应keyver的解密密钥
-                String key = registerKeyService.getDecryptionKey(contentKeyver);
-                
-                // 使用新的解密和解压缩方法
-                String decryptedContent = FqCrypto.decryptAndDecompressContent(content.getContent(), key);
-                results.add(new java.util.AbstractMap.SimpleEntry<>(itemId, decryptedContent));
-                
-                log.debug("章节 {} 解密成功，内容长度: {}", itemId, decryptedContent.length());
-                
-            } catch (Exception e) {
-                log.error("解密章节内容失败 - itemId: {}, keyVersion: {}", itemId, content.getKeyVersion(), e);
-                // 继续处理其他章节
+            futures.add(CompletableFuture.supplyAsync(() -> decrypt(registerKeyService, itemId, content), executor));
+        }
+
+        List<Map.Entry<String, String>> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Map.Entry<String, String>> future : futures) {
+            Map.Entry<String, String> result = future.join();
+            if (result != null) {
+                results.add(result);
             }
         }
-        
         return results;
     }
-    
-}
\ No newline at end of file
+
+    private static Map.Entry<String, String> decrypt(FQRegisterKeyService registerKeyService, String itemId, ItemContent content) {
+        try {
+            // 获取章节的keyVersion
+            Long contentKeyver = content.getKeyVersion();
+            log.debug("章节 {} 的keyVersion: {}", itemId, contentKeyver);
+
+            // 获取对应keyver的解密密钥
+            SecretKeySpec key = registerKeyService.getDecryptionKeySpec(contentKeyver);
+
+            // 使用新的解密和解压缩方法
+            String decryptedContent = FqCrypto.decryptAndDecompressContent(content.getContent(), key);
+            log.debug("章节 {} 解密成功，内容长度: {}", itemId, decryptedContent.length());
+            return new java.util.AbstractMap.SimpleEntry<>(itemId, decryptedContent);
+
+        } catch (Exception e) {
+            log.error("解密章节内容失败 - itemId: {}, keyVersion: {}", itemId, content.getKeyVersion(), e);
+            // 继续处理其他章节
+            return null;
+        }
+    }
+}
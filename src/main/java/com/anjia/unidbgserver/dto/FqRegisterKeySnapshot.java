@@ -0,0 +1,39 @@
+package com.anjia.unidbgserver.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * registerkey 本地持久化快照：重启后直接加载，首章解密无需先请求上游
+ * registerkey 与设备绑定，仅当前设备一致时才会加载
+ */
+@Data
+public class FqRegisterKeySnapshot {
+
+    /**
+     * 获取 registerkey 时使用的设备ID
+     */
+    private String deviceId;
+
+    /**
+     * 获取 registerkey 时使用的安装ID
+     */
+    private String installId;
+
+    /**
+     * 当前默认使用的keyver
+     */
+    private Long currentKeyver;
+
+    /**
+     * 最近一次从上游刷新的时间（毫秒时间戳）
+     */
+    private Long refreshedAt;
+
+    /**
+     * 已获取过的各keyver的 registerkey（加密形式，与上游响应一致）
+     */
+    private List<FqRegisterKeyPayloadResponse> keys = new ArrayList<>();
+}
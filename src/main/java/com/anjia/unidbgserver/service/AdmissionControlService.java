@@ -0,0 +1,157 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.config.FQAdmissionProperties;
+import com.anjia.unidbgserver.config.InstrumentedTaskExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 准入控制：根据线程池队列深度、上游限流积压和签名排队情况估算等待时间，
+ * 过载时快速拒绝（429 + Retry-After），保证延迟有界，也避免过载被误判为上游故障触发自动重启。
+ */
+@Slf4j
+@Service
+public class AdmissionControlService {
+
+    /**
+     * 经过准入控制的负载（与 WebMvcConfig 中的拦截器一致）；prefetch/decode 为后台负载，不参与过载判断
+     */
+    private static final List<String> ADMITTED_WORKLOADS = Arrays.asList("interactive", "bulk", "search");
+
+    @Resource
+    private FQAdmissionProperties admissionProperties;
+
+    @Resource
+    private List<InstrumentedTaskExecutor> executors;
+
+    @Resource
+    private UpstreamRateLimiter upstreamRateLimiter;
+
+    @Resource(name = "fqEncryptWorker")
+    private FQEncryptServiceWorker fqEncryptServiceWorker;
+
+    private final Map<String, InstrumentedTaskExecutor> executorsByWorkload = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> shedCounts = new ConcurrentHashMap<>();
+    private final LongAdder admittedCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (InstrumentedTaskExecutor executor : executors) {
+            executorsByWorkload.put(executor.getWorkload(), executor);
+        }
+    }
+
+    /**
+     * 尝试准入一个请求，过载时抛出 {@link OverloadedException}
+     *
+     * @param workload 负载类型（interactive / bulk / search / prefetch）
+     */
+    public void admit(String workload) {
+        if (!admissionProperties.isEnabled()) {
+            return;
+        }
+
+        InstrumentedTaskExecutor executor = executorsByWorkload.get(workload);
+        if (executor == null) {
+            return;
+        }
+
+        int queueDepth = executor.getQueueDepth();
+        int queueCapacity = queueDepth + executor.getQueueRemainingCapacity();
+        double utilization = queueCapacity > 0 ? (double) queueDepth / queueCapacity : 0d;
+        long estimatedWaitMs = estimateWaitMs(executor);
+
+        boolean queueFull = queueCapacity > 0 && utilization >= admissionProperties.getMaxQueueUtilization();
+        boolean tooSlow = estimatedWaitMs > admissionProperties.getMaxEstimatedWaitMs();
+        if (!queueFull && !tooSlow) {
+            admittedCount.increment();
+            return;
+        }
+
+        shedCounts.computeIfAbsent(workload, k -> new LongAdder()).increment();
+        long retryAfterSeconds = retryAfterSeconds(estimatedWaitMs);
+        if (log.isDebugEnabled()) {
+            log.debug("准入控制拒绝请求 - workload: {}, queueDepth: {}/{}, estimatedWaitMs: {}, retryAfter: {}s",
+                workload, queueDepth, queueCapacity, estimatedWaitMs, retryAfterSeconds);
+        }
+        throw new OverloadedException(workload, retryAfterSeconds,
+            "服务繁忙（" + workload + " 队列 " + queueDepth + "/" + queueCapacity + "，预估等待 " + estimatedWaitMs + "ms），请稍后重试");
+    }
+
+    /**
+     * 预估新请求的等待时间（ms）：
+     * 取线程池排队、上游限流积压、签名排队三者中的最大值
+     */
+    public long estimateWaitMs(InstrumentedTaskExecutor executor) {
+        long poolWaitMs = 0L;
+        int maxSize = Math.max(1, executor.getMaxPoolSize());
+        int queueDepth = executor.getQueueDepth();
+        if (executor.getActiveCount() + queueDepth >= maxSize) {
+            long rounds = (queueDepth + maxSize) / maxSize;
+            poolWaitMs = rounds * executor.getAvgRunMs();
+        }
+
+        long limiterWaitMs = upstreamRateLimiter.getBacklogMs();
+
+        int signerParallelism = Math.max(1, fqEncryptServiceWorker.getParallelism());
+        long signerWaitMs = (long) fqEncryptServiceWorker.getPendingCount() * fqEncryptServiceWorker.getAvgSignMs() / signerParallelism;
+
+        return Math.max(poolWaitMs, Math.max(limiterWaitMs, signerWaitMs));
+    }
+
+    /**
+     * 是否处于过载状态（任一交互/批量/搜索线程池的预估等待超过阈值或队列接近满）
+     */
+    public boolean isOverloaded() {
+        for (String workload : ADMITTED_WORKLOADS) {
+            InstrumentedTaskExecutor executor = executorsByWorkload.get(workload);
+            if (executor == null) {
+                continue;
+            }
+            int queueDepth = executor.getQueueDepth();
+            int queueCapacity = queueDepth + executor.getQueueRemainingCapacity();
+            if (queueCapacity > 0 && (double) queueDepth / queueCapacity >= admissionProperties.getMaxQueueUtilization()) {
+                return true;
+            }
+            if (estimateWaitMs(executor) > admissionProperties.getMaxEstimatedWaitMs()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long retryAfterSeconds(long estimatedWaitMs) {
+        long seconds = (estimatedWaitMs + 999L) / 1000L;
+        long min = Math.max(1, admissionProperties.getRetryAfterMinSeconds());
+        long max = Math.max(min, admissionProperties.getRetryAfterMaxSeconds());
+        return Math.max(min, Math.min(max, seconds));
+    }
+
+    /**
+     * 获取准入控制状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", admissionProperties.isEnabled());
+        status.put("admitted", admittedCount.sum());
+        Map<String, Object> shed = new LinkedHashMap<>();
+        shedCounts.forEach((k, v) -> shed.put(k, v.sum()));
+        status.put("shed", shed);
+        Map<String, Object> estimates = new LinkedHashMap<>();
+        executorsByWorkload.forEach((k, v) -> estimates.put(k, estimateWaitMs(v)));
+        status.put("estimatedWaitMs", estimates);
+        status.put("limiterBacklogMs", upstreamRateLimiter.getBacklogMs());
+        status.put("signerPending", fqEncryptServiceWorker.getPendingCount());
+        status.put("signerAvgMs", fqEncryptServiceWorker.getAvgSignMs());
+        return status;
+    }
+}
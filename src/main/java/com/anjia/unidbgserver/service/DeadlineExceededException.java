@@ -0,0 +1,19 @@
+package com.anjia.unidbgserver.service;
+
+/**
+ * 请求已取消或超过截止时间：调用方已不再等待结果，放弃后续上游调用。
+ * 不是上游故障，不应计入自动重启的失败统计，也不应触发设备轮换或重试。
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final String stage;
+
+    public DeadlineExceededException(String stage, String reason) {
+        super("请求已取消或超时（" + reason + "），放弃" + stage);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
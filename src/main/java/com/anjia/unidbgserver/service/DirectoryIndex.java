@@ -0,0 +1,141 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.dto.FQDirectoryResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 目录索引：按章节顺序保存 itemId / 标题 / 卷名 / 内容版本数组，并建立 itemId -> 位置的哈希索引。
+ * 构建后不可变，定位章节、取版本、取区间均为 O(1)（区间为视图，不复制）。
+ */
+public final class DirectoryIndex {
+
+    public static final DirectoryIndex EMPTY = new DirectoryIndex(new String[0], new String[0], new String[0], new String[0]);
+
+    private final String[] itemIds;
+    private final String[] titles;
+    private final String[] volumes;
+    private final String[] versions;
+    private final Map<String, Integer> positions;
+    private final List<String> itemIdList;
+
+    private DirectoryIndex(String[] itemIds, String[] titles, String[] volumes, String[] versions) {
+        this.itemIds = itemIds;
+        this.titles = titles;
+        this.volumes = volumes;
+        this.versions = versions;
+        this.positions = new HashMap<>(Math.max(16, itemIds.length * 4 / 3 + 1));
+        for (int i = 0; i < itemIds.length; i++) {
+            // 重复的 itemId 以首次出现的位置为准（与 List.indexOf 一致）
+            positions.putIfAbsent(itemIds[i], i);
+        }
+        this.itemIdList = Collections.unmodifiableList(Arrays.asList(itemIds));
+    }
+
+    /**
+     * 由目录接口的 item_data_list 构建；忽略没有 itemId 的条目
+     */
+    public static DirectoryIndex from(List<FQDirectoryResponse.ItemData> items) {
+        if (items == null || items.isEmpty()) {
+            return EMPTY;
+        }
+        List<FQDirectoryResponse.ItemData> valid = new ArrayList<>(items.size());
+        for (FQDirectoryResponse.ItemData item : items) {
+            if (item != null && item.getItemId() != null && !item.getItemId().trim().isEmpty()) {
+                valid.add(item);
+            }
+        }
+        if (valid.isEmpty()) {
+            return EMPTY;
+        }
+
+        int size = valid.size();
+        String[] itemIds = new String[size];
+        String[] titles = new String[size];
+        String[] volumes = new String[size];
+        String[] versions = new String[size];
+        for (int i = 0; i < size; i++) {
+            FQDirectoryResponse.ItemData item = valid.get(i);
+            itemIds[i] = item.getItemId().trim();
+            titles[i] = item.getTitle();
+            volumes[i] = item.getVolumeName();
+            versions[i] = contentVersion(item);
+        }
+        return new DirectoryIndex(itemIds, titles, volumes, versions);
+    }
+
+    /**
+     * 章节内容版本：目录中的 version 与 content_md5 组合，任一变化即视为内容已更新
+     */
+    static String contentVersion(FQDirectoryResponse.ItemData item) {
+        String version = item.getVersion() != null ? item.getVersion().trim() : "";
+        String md5 = item.getContentMd5() != null ? item.getContentMd5().trim() : "";
+        if (version.isEmpty() && md5.isEmpty()) {
+            return null;
+        }
+        return version + "/" + md5;
+    }
+
+    public int size() {
+        return itemIds.length;
+    }
+
+    public boolean isEmpty() {
+        return itemIds.length == 0;
+    }
+
+    /**
+     * 章节位置（从 0 开始）；不在目录中时返回 -1
+     */
+    public int indexOf(String itemId) {
+        if (itemId == null) {
+            return -1;
+        }
+        Integer position = positions.get(itemId);
+        return position != null ? position : -1;
+    }
+
+    public boolean contains(String itemId) {
+        return indexOf(itemId) >= 0;
+    }
+
+    public String itemIdAt(int index) {
+        return itemIds[index];
+    }
+
+    public String titleAt(int index) {
+        return titles[index];
+    }
+
+    public String volumeAt(int index) {
+        return volumes[index];
+    }
+
+    public String versionAt(int index) {
+        return versions[index];
+    }
+
+    /**
+     * 章节内容版本；不在目录中或目录未提供版本时返回 null
+     */
+    public String versionOf(String itemId) {
+        int index = indexOf(itemId);
+        return index >= 0 ? versions[index] : null;
+    }
+
+    /**
+     * [fromIndex, toIndex) 区间内的 itemId（只读视图）
+     */
+    public List<String> itemIds(int fromIndex, int toIndex) {
+        return itemIdList.subList(fromIndex, toIndex);
+    }
+
+    public List<String> itemIds() {
+        return itemIdList;
+    }
+}
@@ -0,0 +1,554 @@
+package com.anjia.unidbgserver.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * 磁盘章节存储：追加写的分段日志文件 + 内存索引，进程重启（包括自动重启）后可直接恢复缓存。
+ * <p>
+ * - 记录格式：magic | crc32 | bodyLength | body，body = key | version | writtenAtMs | tombstone | value；
+ * - 启动时按段顺序扫描重建索引，校验 CRC，末段尾部的半截记录（写入中途退出）会被截断；
+ * - 已写满的段以只读方式内存映射，读取不经过系统调用；当前写入段用定位读；
+ * - 后台整理：总大小超过上限时按段 FIFO 淘汰最旧段；有效数据占比过低的段把存活记录搬到当前段后删除。
+ * <p>
+ * 存储的是已压缩的字节，序列化/压缩由调用方负责。
+ */
+@Slf4j
+public class DiskChapterStore implements Closeable {
+
+    private static final int MAGIC = 0x46514331;
+    private static final int HEADER_BYTES = 12;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 段内有效数据占比低于该值时整理
+     */
+    private static final double COMPACT_LIVE_RATIO = 0.5d;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Object writeLock = new Object();
+    private volatile Segment active;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder corruptRecords = new LongAdder();
+    private final LongAdder droppedSegments = new LongAdder();
+    private final LongAdder compactedSegments = new LongAdder();
+
+    public DiskChapterStore(Path directory, long maxBytes, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(1024L * 1024, segmentBytes);
+        this.maxBytes = Math.max(this.segmentBytes * 2, maxBytes);
+    }
+
+    /**
+     * 打开存储：扫描已有段文件重建索引
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("忽略无法识别的缓存段文件: {}", path);
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        for (int i = 0; i < ids.size(); i++) {
+            boolean last = i == ids.size() - 1;
+            Segment segment = openSegment(ids.get(i));
+            segments.put(segment.id, segment);
+            scan(segment, last);
+            if (!last) {
+                segment.seal();
+            }
+        }
+
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last == null || last.size.get() >= segmentBytes) {
+            if (last != null) {
+                last.seal();
+            }
+            last = openSegment(last == null ? 1L : last.id + 1);
+            segments.put(last.id, last);
+        }
+        active = last;
+        log.info("磁盘章节缓存已加载 - 目录: {}, 段数: {}, 记录数: {}, 大小: {} MB",
+            directory.toAbsolutePath(), segments.size(), index.size(), totalBytes.get() / 1024 / 1024);
+    }
+
+    /**
+     * 读取记录；不存在、已删除或 CRC 校验失败时返回 null
+     */
+    public Record get(String key) {
+        Location location = index.get(key);
+        if (location == null || location.tombstone) {
+            misses.increment();
+            return null;
+        }
+        Segment segment = segments.get(location.segmentId);
+        if (segment == null) {
+            misses.increment();
+            return null;
+        }
+        try {
+            ByteBuffer record = segment.read(location.offset, location.length);
+            ParsedRecord parsed = parse(record);
+            if (parsed == null || !key.equals(parsed.key)) {
+                corruptRecords.increment();
+                index.remove(key, location);
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return new Record(parsed.value, parsed.version, parsed.writtenAtMs);
+        } catch (IOException e) {
+            // 段已被整理/删除，或读取失败
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * 是否存在有效记录（只查索引，不读文件、不校验版本，不计入命中统计）
+     */
+    public boolean contains(String key) {
+        return contains(key, null);
+    }
+
+    /**
+     * 是否存在指定内容版本的有效记录（只查索引，不读文件，不计入命中统计）
+     *
+     * @param expectedVersion 期望的内容版本；为 null 表示不校验
+     */
+    public boolean contains(String key, String expectedVersion) {
+        Location location = index.get(key);
+        return location != null && !location.tombstone && segments.containsKey(location.segmentId)
+            && (expectedVersion == null || expectedVersion.equals(location.version));
+    }
+
+    /**
+     * 追加写入一条记录（覆盖同 key 的旧记录）
+     */
+    public void put(String key, String version, long writtenAtMs, byte[] value) throws IOException {
+        append(key, encode(key, version, writtenAtMs, false, value), version, false, null);
+        writes.increment();
+    }
+
+    /**
+     * 删除记录（写入墓碑，重启后仍然生效）
+     */
+    public void remove(String key) throws IOException {
+        Location existing = index.get(key);
+        if (existing == null || existing.tombstone) {
+            return;
+        }
+        append(key, encode(key, null, System.currentTimeMillis(), true, new byte[0]), null, true, null);
+    }
+
+    private void append(String key, ByteBuffer record, String version, boolean tombstone, Location expected) throws IOException {
+        int length = record.remaining();
+        synchronized (writeLock) {
+            Segment segment = active;
+            if (segment.size.get() + length > segmentBytes) {
+                segment.seal();
+                segment = openSegment(segment.id + 1);
+                segments.put(segment.id, segment);
+                active = segment;
+            }
+
+            long offset = segment.size.get();
+            segment.write(record, offset);
+            segment.size.addAndGet(length);
+            totalBytes.addAndGet(length);
+
+            Location location = new Location(segment.id, offset, length, version, tombstone);
+            if (expected == null) {
+                track(key, index.put(key, location), location);
+            } else if (index.replace(key, expected, location)) {
+                track(key, expected, location);
+            }
+        }
+    }
+
+    private void track(String key, Location previous, Location current) {
+        if (previous != null) {
+            Segment old = segments.get(previous.segmentId);
+            if (old != null) {
+                old.liveBytes.addAndGet(-previous.length);
+            }
+        }
+        Segment segment = segments.get(current.segmentId);
+        if (segment != null) {
+            segment.liveBytes.addAndGet(current.length);
+        }
+    }
+
+    /**
+     * 后台整理：先按容量淘汰最旧段，再整理有效数据占比过低的段
+     */
+    public void compact() {
+        try {
+            while (totalBytes.get() > maxBytes && segments.size() > 1) {
+                Segment oldest = segments.firstEntry().getValue();
+                if (oldest == active) {
+                    break;
+                }
+                dropSegment(oldest);
+                droppedSegments.increment();
+            }
+
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment == active || segment.size.get() == 0) {
+                    continue;
+                }
+                double liveRatio = (double) segment.liveBytes.get() / segment.size.get();
+                if (liveRatio >= COMPACT_LIVE_RATIO) {
+                    continue;
+                }
+                boolean oldest = segment.id == segments.firstKey();
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    Location location = entry.getValue();
+                    if (location.segmentId != segment.id) {
+                        continue;
+                    }
+                    if (location.tombstone && oldest) {
+                        // 最旧段中的墓碑不再遮挡任何记录，直接丢弃
+                        index.remove(entry.getKey(), location);
+                        continue;
+                    }
+                    ByteBuffer record = segment.read(location.offset, location.length);
+                    append(entry.getKey(), record, location.version, location.tombstone, location);
+                }
+                dropSegment(segment);
+                compactedSegments.increment();
+            }
+        } catch (IOException e) {
+            log.warn("磁盘章节缓存整理失败", e);
+        }
+    }
+
+    private void dropSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        final long id = segment.id;
+        index.values().removeIf(location -> location.segmentId == id);
+        totalBytes.addAndGet(-segment.size.get());
+        segment.delete();
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    /**
+     * 扫描段文件重建索引；遇到损坏记录即停止，末段截断到最后一条完整记录
+     */
+    private void scan(Segment segment, boolean last) throws IOException {
+        long fileSize = segment.channel.size();
+        long offset = 0L;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= fileSize) {
+            header.clear();
+            readFully(segment.channel, header, offset);
+            header.flip();
+            int magic = header.getInt();
+            header.getInt();
+            int bodyLength = header.getInt();
+            if (magic != MAGIC || bodyLength < 0 || offset + HEADER_BYTES + bodyLength > fileSize) {
+                break;
+            }
+            int length = HEADER_BYTES + bodyLength;
+            ParsedRecord parsed = parse(segment.read(offset, length));
+            if (parsed == null) {
+                break;
+            }
+            Location location = new Location(segment.id, offset, length, parsed.version, parsed.tombstone);
+            track(parsed.key, index.put(parsed.key, location), location);
+            offset += length;
+        }
+
+        if (offset < fileSize) {
+            corruptRecords.increment();
+            if (last) {
+                log.warn("磁盘章节缓存段尾部不完整，截断 - 文件: {}, 有效长度: {}, 文件长度: {}", segment.path, offset, fileSize);
+                segment.channel.truncate(offset);
+            } else {
+                log.warn("磁盘章节缓存段存在损坏记录，忽略其后内容 - 文件: {}, 位置: {}", segment.path, offset);
+            }
+        }
+        segment.size.set(offset);
+        totalBytes.addAndGet(offset);
+    }
+
+    private static ByteBuffer encode(String key, String version, long writtenAtMs, boolean tombstone, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] versionBytes = version != null ? version.getBytes(StandardCharsets.UTF_8) : null;
+        int bodyLength = 4 + keyBytes.length
+            + 4 + (versionBytes != null ? versionBytes.length : 0)
+            + 8 + 1
+            + 4 + value.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.putInt(MAGIC);
+        buffer.putInt(0);
+        buffer.putInt(bodyLength);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        if (versionBytes != null) {
+            buffer.putInt(versionBytes.length).put(versionBytes);
+        } else {
+            buffer.putInt(-1);
+        }
+        buffer.putLong(writtenAtMs);
+        buffer.put((byte) (tombstone ? 1 : 0));
+        buffer.putInt(value.length).put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 解析并校验一条完整记录；格式或 CRC 不正确时返回 null
+     */
+    private static ParsedRecord parse(ByteBuffer record) {
+        try {
+            ByteBuffer buffer = record.duplicate();
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            int expectedCrc = buffer.getInt();
+            int bodyLength = buffer.getInt();
+            if (bodyLength != buffer.remaining()) {
+                return null;
+            }
+            byte[] body = new byte[bodyLength];
+            buffer.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, bodyLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                return null;
+            }
+
+            ByteBuffer in = ByteBuffer.wrap(body);
+            byte[] keyBytes = new byte[in.getInt()];
+            in.get(keyBytes);
+            int versionLength = in.getInt();
+            String version = null;
+            if (versionLength >= 0) {
+                byte[] versionBytes = new byte[versionLength];
+                in.get(versionBytes);
+                version = new String(versionBytes, StandardCharsets.UTF_8);
+            }
+            long writtenAtMs = in.getLong();
+            boolean tombstone = in.get() == 1;
+            byte[] value = new byte[in.getInt()];
+            in.get(value);
+            return new ParsedRecord(new String(keyBytes, StandardCharsets.UTF_8), version, writtenAtMs, tombstone, value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("unexpected end of segment");
+            }
+            pos += read;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long liveBytes = 0L;
+        for (Segment segment : segments.values()) {
+            liveBytes += segment.liveBytes.get();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("entries", index.size());
+        stats.put("segments", segments.size());
+        stats.put("totalBytes", totalBytes.get());
+        stats.put("liveBytes", liveBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hitCount", hits.sum());
+        stats.put("missCount", misses.sum());
+        stats.put("writeCount", writes.sum());
+        stats.put("corruptRecords", corruptRecords.sum());
+        stats.put("droppedSegments", droppedSegments.sum());
+        stats.put("compactedSegments", compactedSegments.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * 读取结果
+     */
+    public static final class Record {
+        private final byte[] value;
+        private final String version;
+        private final long writtenAtMs;
+
+        Record(byte[] value, String version, long writtenAtMs) {
+            this.value = value;
+            this.version = version;
+            this.writtenAtMs = writtenAtMs;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public long getWrittenAtMs() {
+            return writtenAtMs;
+        }
+    }
+
+    private static final class ParsedRecord {
+        final String key;
+        final String version;
+        final long writtenAtMs;
+        final boolean tombstone;
+        final byte[] value;
+
+        ParsedRecord(String key, String version, long writtenAtMs, boolean tombstone, byte[] value) {
+            this.key = key;
+            this.version = version;
+            this.writtenAtMs = writtenAtMs;
+            this.tombstone = tombstone;
+            this.value = value;
+        }
+    }
+
+    private static final class Location {
+        final long segmentId;
+        final long offset;
+        final int length;
+        final String version;
+        final boolean tombstone;
+
+        Location(long segmentId, long offset, int length, String version, boolean tombstone) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+            this.version = version;
+            this.tombstone = tombstone;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        final AtomicLong size = new AtomicLong();
+        final AtomicLong liveBytes = new AtomicLong();
+        volatile MappedByteBuffer mapped;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        void write(ByteBuffer record, long position) throws IOException {
+            ByteBuffer source = record.duplicate();
+            long pos = position;
+            while (source.hasRemaining()) {
+                pos += channel.write(source, pos);
+            }
+        }
+
+        ByteBuffer read(long offset, int length) throws IOException {
+            MappedByteBuffer buffer = mapped;
+            if (buffer != null) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.position((int) offset);
+                slice.limit((int) offset + length);
+                return slice.slice();
+            }
+            ByteBuffer target = ByteBuffer.allocate(length);
+            readFully(channel, target, offset);
+            target.flip();
+            return target;
+        }
+
+        /**
+         * 段写满后只读映射，后续读取直接访问映射内存
+         */
+        void seal() throws IOException {
+            if (mapped != null) {
+                return;
+            }
+            channel.force(false);
+            long length = size.get() > 0 ? size.get() : channel.size();
+            if (length > 0 && length <= Integer.MAX_VALUE) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+        }
+
+        void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+
+        void delete() throws IOException {
+            // 已映射的内存在 GC 回收前仍然可读，正在进行的读取不受影响
+            mapped = null;
+            close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
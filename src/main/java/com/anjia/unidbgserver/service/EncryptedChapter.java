@@ -0,0 +1,67 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.dto.FQNovelData;
+import com.anjia.unidbgserver.dto.ItemContent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 未解密的章节：只保留解密和构建章节所需的字段。
+ * 密文是 base64 文本，按字节存储，约为同长度 String 占用的一半。
+ */
+public final class EncryptedChapter {
+
+    private final String bookId;
+    private final String chapterId;
+    private final String title;
+    private final String authorName;
+    private final byte[] content;
+    private final long keyVersion;
+
+    public EncryptedChapter(String bookId, String chapterId, String title, String authorName,
+                            byte[] content, long keyVersion) {
+        this.bookId = bookId;
+        this.chapterId = chapterId;
+        this.title = title;
+        this.authorName = authorName;
+        this.content = content;
+        this.keyVersion = keyVersion;
+    }
+
+    public static EncryptedChapter of(String bookId, String chapterId, ItemContent itemContent) {
+        FQNovelData novelData = itemContent.getNovelData();
+        String content = itemContent.getContent();
+        return new EncryptedChapter(bookId, chapterId, itemContent.getTitle(),
+            novelData != null ? novelData.getAuthor() : null,
+            content != null ? content.getBytes(StandardCharsets.UTF_8) : new byte[0],
+            itemContent.getKeyVersion());
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public String getChapterId() {
+        return chapterId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentString() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    public long getKeyVersion() {
+        return keyVersion;
+    }
+}
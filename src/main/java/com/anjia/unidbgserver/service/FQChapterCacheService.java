@@ -0,0 +1,602 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.config.FQDownloadProperties;
+import com.anjia.unidbgserver.dto.FQNovelChapterInfo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 章节内容缓存（两级）：
+ * - L1：堆内 Caffeine，按字节估算限制内存，存放解码后的章节对象；
+ * - L2：堆外压缩存储（可选），接收 L1 因容量淘汰的章节，命中后解压并回填 L1；
+ * - L3：磁盘分段存储（可选），写入时异步落盘，进程重启后仍可命中，按内容版本校验。
+ * 同一章节在 L1/L2 中的 TTL 以首次构建时间（updateTime）为准，回填不会延长有效期。
+ * 章节只保存 HTML（rawContent）一份，纯文本在返回时按需提取，不占缓存空间。
+ * <p>
+ * 条目可以是已解码的章节，也可以是未解密的密文（预取写入）；密文在首次读取时解密一次并替换，
+ * 之后按解码后的大小重新计算权重，并把解码结果写回磁盘。
+ */
+@Slf4j
+@Service
+public class FQChapterCacheService {
+
+    private static final byte CODEC_VERSION = 1;
+    private static final byte CODEC_VERSION_ENCRYPTED = 2;
+
+    @Resource
+    private FQDownloadProperties downloadProperties;
+
+    @Resource
+    private FQChapterDecoder chapterDecoder;
+
+    @Resource(name = "fqCacheScheduler")
+    private Scheduler cacheScheduler;
+
+    @Resource(name = "fqCacheMaintenanceExecutor")
+    private ScheduledExecutorService maintenanceExecutor;
+
+    private Cache<String, CachedChapter> chapterCache;
+    private OffHeapChapterStore offHeapStore;
+    private DiskChapterStore diskStore;
+    private long ttlMs;
+    private long diskTtlMs;
+
+    private final LongAdder encryptedPuts = new LongAdder();
+    private final LongAdder lazyDecodes = new LongAdder();
+    private final LongAdder lazyDecodeFailures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.ttlMs = downloadProperties.getChapterCacheTtlMs();
+
+        long offHeapMaxBytes = downloadProperties.getChapterOffHeapMaxBytes();
+        if (offHeapMaxBytes > 0) {
+            this.offHeapStore = new OffHeapChapterStore(offHeapMaxBytes, downloadProperties.getChapterOffHeapSlabBytes());
+            log.info("章节堆外缓存已启用 - 容量: {} MB", offHeapMaxBytes / 1024 / 1024);
+        }
+
+        String diskDir = downloadProperties.getChapterDiskCacheDir();
+        if (diskDir != null && !diskDir.trim().isEmpty() && downloadProperties.getChapterDiskCacheMaxBytes() > 0) {
+            DiskChapterStore store = new DiskChapterStore(Paths.get(diskDir.trim()),
+                downloadProperties.getChapterDiskCacheMaxBytes(), downloadProperties.getChapterDiskCacheSegmentBytes());
+            try {
+                store.open();
+                this.diskStore = store;
+                this.diskTtlMs = downloadProperties.getChapterDiskCacheTtlMs();
+                long interval = Math.max(1000L, downloadProperties.getChapterDiskCacheCompactIntervalMs());
+                maintenanceExecutor.scheduleWithFixedDelay(store::compact, interval, interval, TimeUnit.MILLISECONDS);
+            } catch (IOException e) {
+                log.warn("章节磁盘缓存初始化失败，已禁用 - 目录: {}", diskDir, e);
+            }
+        }
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        long maxBytes = downloadProperties.getChapterCacheMaxBytes();
+        if (maxBytes > 0) {
+            // 按内存占用限制：章节长度差异很大，按条数限制时内存从几 MB 到数百 MB 不等
+            builder.maximumWeight(maxBytes)
+                .weigher((String key, CachedChapter value) -> weigh(key, value));
+        } else {
+            builder.maximumSize(Math.max(1, downloadProperties.getChapterCacheMaxEntries()));
+        }
+        if (ttlMs > 0) {
+            builder.expireAfter(new Expiry<String, CachedChapter>() {
+                @Override
+                public long expireAfterCreate(String key, CachedChapter value, long currentTime) {
+                    return remainingTtlNanos(value.createdAtMs);
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, CachedChapter value, long currentTime, long currentDuration) {
+                    return remainingTtlNanos(value.createdAtMs);
+                }
+
+                @Override
+                public long expireAfterRead(String key, CachedChapter value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            });
+        }
+        this.chapterCache = builder
+            .scheduler(cacheScheduler)
+            .removalListener((String key, CachedChapter value, RemovalCause cause) -> demote(key, value, cause))
+            .recordStats()
+            .build();
+    }
+
+    public FQNovelChapterInfo get(String bookId, String chapterId) {
+        return get(bookId, chapterId, null);
+    }
+
+    /**
+     * 查询缓存：依次查 L1、L2、L3，下层命中后回填 L1
+     *
+     * @param expectedVersion 目录中的章节内容版本；为 null 表示未知（不校验磁盘记录版本）
+     */
+    public FQNovelChapterInfo get(String bookId, String chapterId, String expectedVersion) {
+        String key = cacheKey(bookId, chapterId);
+        CachedChapter cached = chapterCache.getIfPresent(key);
+        if (cached != null) {
+            return resolve(key, cached);
+        }
+
+        if (offHeapStore != null) {
+            OffHeapChapterStore.Record record = offHeapStore.get(key);
+            if (record != null) {
+                if (isExpired(record.getWrittenAtMs(), ttlMs)) {
+                    offHeapStore.remove(key);
+                } else {
+                    try {
+                        CachedChapter entry = decodeEntry(record.getValue(), null, null);
+                        chapterCache.put(key, entry);
+                        return resolve(key, entry);
+                    } catch (IOException e) {
+                        log.warn("堆外章节缓存解码失败 - key: {}", key, e);
+                        offHeapStore.remove(key);
+                    }
+                }
+            }
+        }
+
+        if (diskStore != null) {
+            DiskChapterStore.Record record = diskStore.get(key);
+            if (record != null) {
+                boolean versionMismatch = expectedVersion != null && !Objects.equals(expectedVersion, record.getVersion());
+                if (versionMismatch || isExpired(record.getWrittenAtMs(), diskTtlMs)) {
+                    removeFromDisk(key);
+                    return null;
+                }
+                try {
+                    // 磁盘记录已按版本/磁盘 TTL 校验，回填时重新计算内存 TTL
+                    CachedChapter entry = decodeEntry(record.getValue(), record.getVersion(), System.currentTimeMillis());
+                    chapterCache.put(key, entry);
+                    return resolve(key, entry);
+                } catch (IOException e) {
+                    log.warn("磁盘章节缓存解码失败 - key: {}", key, e);
+                    removeFromDisk(key);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 任一层级是否已有该章节（不解码、不计入命中统计）；用于预取时跳过已缓存的章节
+     */
+    public boolean contains(String bookId, String chapterId) {
+        return contains(bookId, chapterId, null);
+    }
+
+    /**
+     * 同 {@link #contains(String, String)}，L3 记录还需与目录中的内容版本一致（与 {@link #get(String, String, String)} 的校验相同），
+     * 重启后上游已更新的旧磁盘记录不算已缓存
+     *
+     * @param expectedVersion 目录中的章节内容版本；为 null 表示未知（不校验磁盘记录版本）
+     */
+    public boolean contains(String bookId, String chapterId, String expectedVersion) {
+        String key = cacheKey(bookId, chapterId);
+        return chapterCache.asMap().containsKey(key)
+            || (offHeapStore != null && offHeapStore.contains(key))
+            || (diskStore != null && diskStore.contains(key, expectedVersion));
+    }
+
+    public void put(String bookId, String chapterId, FQNovelChapterInfo info) {
+        put(bookId, chapterId, info, null);
+    }
+
+    /**
+     * 写入缓存：写 L1，并异步落盘到 L3
+     *
+     * @param version 目录中的章节内容版本（可为 null）
+     */
+    public void put(String bookId, String chapterId, FQNovelChapterInfo info, String version) {
+        if (info == null) {
+            return;
+        }
+        if (info.getUpdateTime() == null) {
+            info.setUpdateTime(System.currentTimeMillis());
+        }
+        info.setTxtContent(null);
+        String key = cacheKey(bookId, chapterId);
+        CachedChapter entry = CachedChapter.decoded(info, version);
+        chapterCache.put(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * 写入未解密的章节：首次读取时才解密
+     *
+     * @param version 目录中的章节内容版本（可为 null）
+     */
+    public void putEncrypted(String bookId, String chapterId, EncryptedChapter chapter, String version) {
+        if (chapter == null) {
+            return;
+        }
+        String key = cacheKey(bookId, chapterId);
+        CachedChapter entry = CachedChapter.encrypted(chapter, version, System.currentTimeMillis());
+        chapterCache.put(key, entry);
+        encryptedPuts.increment();
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * 取出条目中的章节；密文条目在此解密（同一条目只解密一次）。
+     * 解密失败（如密钥已随设备轮换失效）时从所有层级移除，按未命中处理。
+     */
+    private FQNovelChapterInfo resolve(String key, CachedChapter entry) {
+        FQNovelChapterInfo info = entry.decoded;
+        if (info != null) {
+            return info;
+        }
+
+        synchronized (entry) {
+            info = entry.decoded;
+            if (info != null) {
+                return info;
+            }
+            try {
+                info = chapterDecoder.decode(entry.encrypted);
+            } catch (Exception e) {
+                lazyDecodeFailures.increment();
+                log.warn("缓存章节解密失败，已移除 - key: {}, keyver: {}", key, entry.encrypted.getKeyVersion(), e);
+                invalidateKey(key);
+                return null;
+            }
+            // TTL 以拉取时间为准，解密不延长有效期
+            info.setUpdateTime(entry.createdAtMs);
+            entry.decoded = info;
+            entry.encrypted = null;
+            lazyDecodes.increment();
+        }
+
+        // 同一个对象原样替换，让 Caffeine 按解码后的大小重新计算权重（条目已被淘汰时不会复活）
+        chapterCache.asMap().replace(key, entry, entry);
+        writeToDisk(key, entry);
+        return info;
+    }
+
+    private void writeToDisk(String key, CachedChapter entry) {
+        if (diskStore == null) {
+            return;
+        }
+        maintenanceExecutor.execute(() -> {
+            try {
+                diskStore.put(key, entry.version, entry.createdAtMs, encodeEntry(entry));
+            } catch (IOException e) {
+                log.debug("章节写入磁盘缓存失败 - key: {}", key, e);
+            }
+        });
+    }
+
+    /**
+     * 从所有层级移除指定章节
+     */
+    public void invalidate(String bookId, String chapterId) {
+        invalidateKey(cacheKey(bookId, chapterId));
+    }
+
+    private void invalidateKey(String key) {
+        chapterCache.invalidate(key);
+        if (offHeapStore != null) {
+            offHeapStore.remove(key);
+        }
+        if (diskStore != null) {
+            removeFromDisk(key);
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        maintenanceExecutor.execute(() -> {
+            try {
+                diskStore.remove(key);
+            } catch (IOException e) {
+                log.debug("章节从磁盘缓存移除失败 - key: {}", key, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (diskStore != null) {
+            try {
+                diskStore.close();
+            } catch (IOException e) {
+                log.warn("关闭章节磁盘缓存失败", e);
+            }
+        }
+    }
+
+    /**
+     * L1 因容量被淘汰的章节压缩后写入 L2
+     */
+    private void demote(String key, CachedChapter value, RemovalCause cause) {
+        if (offHeapStore == null || cause != RemovalCause.SIZE || key == null || value == null) {
+            return;
+        }
+        long writtenAt = value.createdAtMs;
+        if (isExpired(writtenAt, ttlMs) || offHeapStore.contains(key)) {
+            return;
+        }
+        try {
+            offHeapStore.put(key, encodeEntry(value), writtenAt);
+        } catch (IOException e) {
+            log.debug("章节写入堆外缓存失败 - key: {}", key, e);
+        }
+    }
+
+    private static boolean isExpired(long writtenAtMs, long ttlMs) {
+        return ttlMs > 0 && System.currentTimeMillis() - writtenAtMs >= ttlMs;
+    }
+
+    private long remainingTtlNanos(long writtenAtMs) {
+        long remainingMs = ttlMs - (System.currentTimeMillis() - writtenAtMs);
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, remainingMs));
+    }
+
+    static int weigh(String key, CachedChapter entry) {
+        FQNovelChapterInfo info = entry.decoded;
+        EncryptedChapter chapter = entry.encrypted;
+        if (info != null || chapter == null) {
+            // 先写 decoded 再清空 encrypted，两者都读到 null 时说明解密刚刚完成
+            return weighChapter(key, info != null ? info : entry.decoded);
+        }
+        long bytes = 256L
+            + (length(key) + length(chapter.getTitle()) + length(chapter.getBookId())
+                + length(chapter.getChapterId()) + length(chapter.getAuthorName())) * 2L
+            + chapter.getContent().length;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    /**
+     * 估算单个章节缓存条目的堆内存占用（字节）：
+     * 字符串按 UTF-16 每字符 2 字节计算，外加对象头/字段等固定开销
+     */
+    static int weighChapter(String key, FQNovelChapterInfo info) {
+        long chars = length(key)
+            + length(info.getRawContent())
+            + length(info.getTxtContent())
+            + length(info.getTitle())
+            + length(info.getChapterId())
+            + length(info.getBookId())
+            + length(info.getAuthorName())
+            + length(info.getPrevChapterId())
+            + length(info.getNextChapterId());
+        long bytes = 256L + chars * 2L;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    static String cacheKey(String bookId, String chapterId) {
+        return bookId + ":" + chapterId;
+    }
+
+    /**
+     * 章节序列化 + Deflate 压缩（UTF-8 存储，中文正文通常可压到原 UTF-16 大小的 1/4 以下）
+     */
+    static byte[] encode(FQNovelChapterInfo info) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        bytes.write(CODEC_VERSION);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))) {
+            writeString(out, info.getChapterId());
+            writeString(out, info.getBookId());
+            writeString(out, info.getAuthorName());
+            writeString(out, info.getTitle());
+            writeString(out, info.getRawContent());
+            // 纯文本不再保存（按需提取），保留该字段使记录格式与旧版本一致
+            writeString(out, null);
+            writeString(out, info.getPrevChapterId());
+            writeString(out, info.getNextChapterId());
+            writeInteger(out, info.getChapterIndex());
+            writeInteger(out, info.getWordCount());
+            out.writeBoolean(info.getUpdateTime() != null);
+            out.writeLong(info.getUpdateTime() != null ? info.getUpdateTime() : 0L);
+            out.writeByte(info.getIsFree() == null ? -1 : (info.getIsFree() ? 1 : 0));
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 条目序列化：已解码的用章节格式，密文用密文格式（含内容版本，回填后仍可写回磁盘）
+     */
+    static byte[] encodeEntry(CachedChapter entry) throws IOException {
+        FQNovelChapterInfo info = entry.decoded;
+        EncryptedChapter chapter = entry.encrypted;
+        if (info != null || chapter == null) {
+            return encode(info != null ? info : entry.decoded);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(chapter.getContent().length + 256);
+        bytes.write(CODEC_VERSION_ENCRYPTED);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))) {
+            writeString(out, chapter.getBookId());
+            writeString(out, chapter.getChapterId());
+            writeString(out, chapter.getTitle());
+            writeString(out, chapter.getAuthorName());
+            writeString(out, entry.version);
+            out.writeLong(chapter.getKeyVersion());
+            out.writeLong(entry.createdAtMs);
+            out.writeInt(chapter.getContent().length);
+            out.write(chapter.getContent());
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param version 记录外部保存的内容版本；为 null 时使用记录内自带的版本
+     * @param createdAtMs 覆盖条目的构建时间（磁盘回填时重新计算 TTL）；为 null 时使用记录内的时间
+     */
+    static CachedChapter decodeEntry(byte[] data, String version, Long createdAtMs) throws IOException {
+        if (data.length > 0 && data[0] == CODEC_VERSION_ENCRYPTED) {
+            InputStream raw = new ByteArrayInputStream(data, 1, data.length - 1);
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(raw))) {
+                String bookId = readString(in);
+                String chapterId = readString(in);
+                String title = readString(in);
+                String authorName = readString(in);
+                String storedVersion = readString(in);
+                long keyVersion = in.readLong();
+                long storedCreatedAt = in.readLong();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                EncryptedChapter chapter = new EncryptedChapter(bookId, chapterId, title, authorName, content, keyVersion);
+                return CachedChapter.encrypted(chapter, version != null ? version : storedVersion,
+                    createdAtMs != null ? createdAtMs : storedCreatedAt);
+            }
+        }
+        FQNovelChapterInfo info = decode(data);
+        if (createdAtMs != null) {
+            info.setUpdateTime(createdAtMs);
+        }
+        return CachedChapter.decoded(info, version);
+    }
+
+    static FQNovelChapterInfo decode(byte[] data) throws IOException {
+        if (data.length == 0 || data[0] != CODEC_VERSION) {
+            throw new IOException("unsupported chapter codec version");
+        }
+        InputStream raw = new ByteArrayInputStream(data, 1, data.length - 1);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(raw))) {
+            FQNovelChapterInfo info = new FQNovelChapterInfo();
+            info.setChapterId(readString(in));
+            info.setBookId(readString(in));
+            info.setAuthorName(readString(in));
+            info.setTitle(readString(in));
+            info.setRawContent(readString(in));
+            // 旧记录中保存的纯文本丢弃，统一按需提取
+            readString(in);
+            info.setPrevChapterId(readString(in));
+            info.setNextChapterId(readString(in));
+            info.setChapterIndex(readInteger(in));
+            info.setWordCount(readInteger(in));
+            boolean hasUpdateTime = in.readBoolean();
+            long updateTime = in.readLong();
+            info.setUpdateTime(hasUpdateTime ? updateTime : null);
+            byte isFree = in.readByte();
+            info.setIsFree(isFree < 0 ? null : isFree == 1);
+            return info;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        out.writeInt(value != null ? value : 0);
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        boolean present = in.readBoolean();
+        int value = in.readInt();
+        return present ? value : null;
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = chapterCache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", chapterCache.estimatedSize());
+        chapterCache.policy().eviction().ifPresent(eviction -> {
+            if (eviction.isWeighted()) {
+                map.put("weightedSize", eviction.weightedSize().orElse(0L));
+            }
+            map.put("maximum", eviction.getMaximum());
+        });
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        if (offHeapStore != null) {
+            map.put("offHeap", offHeapStore.getStats());
+        }
+        if (diskStore != null) {
+            map.put("disk", diskStore.getStats());
+        }
+        map.put("encryptedPuts", encryptedPuts.sum());
+        map.put("lazyDecodes", lazyDecodes.sum());
+        map.put("lazyDecodeFailures", lazyDecodeFailures.sum());
+        return map;
+    }
+
+    /**
+     * 缓存条目：decoded 与 encrypted 二者有其一；解密后 encrypted 置空以释放密文
+     */
+    static final class CachedChapter {
+        final String version;
+        final long createdAtMs;
+        volatile FQNovelChapterInfo decoded;
+        volatile EncryptedChapter encrypted;
+
+        private CachedChapter(String version, long createdAtMs) {
+            this.version = version;
+            this.createdAtMs = createdAtMs;
+        }
+
+        static CachedChapter decoded(FQNovelChapterInfo info, String version) {
+            long createdAt = info.getUpdateTime() != null ? info.getUpdateTime() : System.currentTimeMillis();
+            CachedChapter entry = new CachedChapter(version, createdAt);
+            entry.decoded = info;
+            return entry;
+        }
+
+        static CachedChapter encrypted(EncryptedChapter chapter, String version, long createdAtMs) {
+            CachedChapter entry = new CachedChapter(version, createdAtMs);
+            entry.encrypted = chapter;
+            return entry;
+        }
+    }
+}
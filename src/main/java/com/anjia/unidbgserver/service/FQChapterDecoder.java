@@ -0,0 +1,50 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.dto.FQNovelChapterInfo;
+import com.anjia.unidbgserver.dto.ItemContent;
+import com.anjia.unidbgserver.utils.ChapterHtmlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 章节解码：解密 + 解压章节内容，提取标题和字数，构建章节信息
+ * 返回的章节只带 HTML（rawContent），纯文本由 {@link com.anjia.unidbgserver.dto.FQChapterFormat} 在返回时提取
+ */
+@Slf4j
+@Service
+public class FQChapterDecoder {
+
+    @Resource
+    private FQRegisterKeyService registerKeyService;
+
+    public FQNovelChapterInfo decode(String bookId, String chapterId, ItemContent itemContent) throws Exception {
+        return decode(EncryptedChapter.of(bookId, chapterId, itemContent));
+    }
+
+    public FQNovelChapterInfo decode(EncryptedChapter chapter) throws Exception {
+        SecretKeySpec key = registerKeyService.getDecryptionKeySpec(chapter.getKeyVersion());
+        String decryptedContent = FqCrypto.decryptAndDecompressContent(chapter.getContent(), key);
+
+        ChapterHtmlUtils.ChapterText parsed = ChapterHtmlUtils.parse(decryptedContent);
+
+        FQNovelChapterInfo chapterInfo = new FQNovelChapterInfo();
+        chapterInfo.setChapterId(chapter.getChapterId());
+        chapterInfo.setBookId(chapter.getBookId());
+        chapterInfo.setRawContent(decryptedContent);
+
+        String title = chapter.getTitle();
+        if (title == null || title.trim().isEmpty()) {
+            title = parsed.getTitle() != null ? parsed.getTitle() : "章节标题";
+        }
+        chapterInfo.setTitle(title);
+
+        chapterInfo.setAuthorName(chapter.getAuthorName() != null ? chapter.getAuthorName() : "未知作者");
+        chapterInfo.setWordCount(parsed.getWordCount());
+        chapterInfo.setUpdateTime(System.currentTimeMillis());
+
+        return chapterInfo;
+    }
+}
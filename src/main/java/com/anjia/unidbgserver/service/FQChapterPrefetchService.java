@@ -1,8 +1,8 @@
 package com.anjia.unidbgserver.service;
 
 import com.anjia.unidbgserver.config.FQDownloadProperties;
+import com.anjia.unidbgserver.config.FQExecutorProperties;
 import com.anjia.unidbgserver.dto.*;
-import com.anjia.unidbgserver.service.FqCrypto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -10,16 +10,17 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Executor;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 单章接口的抗风控优化：
  * - 根据目录预取一段章节（批量调用上游 batch_full）
  * - 将结果缓存，后续单章请求直接命中缓存，显著减少上游调用次数
+ * 缓存使用 Caffeine（W-TinyLFU 准入 + 无锁读缓冲），一次性的顺序扫描不会挤掉热门书籍
  */
 @Slf4j
 @Service
@@ -27,334 +28,321 @@ import java.util.regex.Pattern;
 public class FQChapterPrefetchService {
 
     private final FQDownloadProperties downloadProperties;
+    private final FQExecutorProperties executorProperties;
+    private final UpstreamRateLimiter upstreamRateLimiter;
     private final FQNovelService fqNovelService;
-    private final FQSearchService fqSearchService;
-    private final FQRegisterKeyService registerKeyService;
+    private final FQChapterDecoder chapterDecoder;
+    private final FQChapterCacheService chapterCacheService;
+    private final FQDirectoryCacheService directoryCacheService;
+    private final FQNegativeCacheService negativeCacheService;
 
-    @javax.annotation.Resource(name = "applicationTaskExecutor")
-    private Executor executor;
+    @javax.annotation.Resource(name = "fqInteractiveExecutor")
+    private Executor interactiveExecutor;
 
     @javax.annotation.Resource(name = "fqPrefetchExecutor")
     private Executor prefetchExecutor;
 
-    private TimedLruCache<String, FQNovelChapterInfo> chapterCache;
-    private TimedLruCache<String, List<String>> directoryCache;
-    private final ConcurrentHashMap<String, CompletableFuture<Void>> inflightPrefetch = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, CompletableFuture<List<String>>> inflightDirectory = new ConcurrentHashMap<>();
+    @javax.annotation.Resource(name = "fqDecodeExecutor")
+    private Executor decodeExecutor;
+
+    private final PrefetchPlanner prefetchPlanner = new PrefetchPlanner();
+    private final LongAdder readAheadWindows = new LongAdder();
+    private ReadAheadTracker readAheadTracker;
+    private PrefetchScheduler prefetchScheduler;
 
     @PostConstruct
-    public void initCaches() {
-        int chapterMax = Math.max(1, downloadProperties.getChapterCacheMaxEntries());
-        long chapterTtl = downloadProperties.getChapterCacheTtlMs();
-        int dirMax = Math.max(64, chapterMax / 10);
-        long dirTtl = downloadProperties.getDirectoryCacheTtlMs();
-
-        this.chapterCache = new TimedLruCache<>(chapterMax, chapterTtl);
-        this.directoryCache = new TimedLruCache<>(dirMax, dirTtl);
+    public void init() {
+        this.readAheadTracker = new ReadAheadTracker(downloadProperties.getChapterReadAheadMaxReaders(),
+            downloadProperties.getDirectoryCacheTtlMs());
+        this.prefetchScheduler = new PrefetchScheduler(executorProperties.getPrefetch().getMaxSize(),
+            upstreamRateLimiter::getBacklogMs, downloadProperties.getReadAheadMaxLimiterBacklogMs());
     }
 
+    /**
+     * 获取缓存统计（命中率、淘汰数等）
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("chapter", chapterCacheService.getStats());
+        stats.put("directory", directoryCacheService.getStats());
+        stats.put("negative", negativeCacheService.getStats());
+        Map<String, Object> prefetch = new LinkedHashMap<>(prefetchPlanner.getStats());
+        prefetch.put("readAheadWindows", readAheadWindows.sum());
+        prefetch.put("readAhead", readAheadTracker.getStats());
+        prefetch.put("scheduler", prefetchScheduler.getStats());
+        stats.put("prefetch", prefetch);
+        return stats;
+    }
+
+    /**
+     * 单章读取：缓存中的章节只有 HTML，按请求的 format 生成返回内容（默认同时返回 HTML 与纯文本）
+     */
     public CompletableFuture<FQNovelResponse<FQNovelChapterInfo>> getChapterContent(FQNovelRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String bookId = request.getBookId();
-                String chapterId = request.getChapterId();
+        FQChapterFormat format = FQChapterFormat.parse(request.getFormat());
+        if (format == null) {
+            return CompletableFuture.completedFuture(FQNovelResponse.error(FQChapterFormat.INVALID_MESSAGE));
+        }
+        return loadChapterContent(request).thenApply(response -> {
+            if (response.getData() != null) {
+                response.setData(format.render(response.getData()));
+            }
+            return response;
+        });
+    }
 
-                String cacheKey = cacheKey(bookId, chapterId);
-                FQNovelChapterInfo cached = chapterCache.getIfPresent(cacheKey);
-                if (cached != null) {
-                    return FQNovelResponse.success(cached);
-                }
+    private CompletableFuture<FQNovelResponse<FQNovelChapterInfo>> loadChapterContent(FQNovelRequest request) {
+        String bookId = request.getBookId();
+        String chapterId = request.getChapterId();
+
+        // 目录已缓存时带上章节内容版本，磁盘缓存中的旧版本内容不会被返回
+        DirectoryIndex knownDirectory = directoryCacheService.getCachedIndex(bookId);
+        String knownVersion = knownDirectory != null ? knownDirectory.versionOf(chapterId) : null;
+        readAhead(bookId, request.getDeviceId(), chapterId, knownDirectory);
+        FQNovelChapterInfo cached = chapterCacheService.get(bookId, chapterId, knownVersion);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(FQNovelResponse.success(cached));
+        }
 
-                // 预取：优先在目录中定位章节顺序，批量拉取后缓存
-                prefetchAndCacheDedup(bookId, chapterId).join();
+        // 最近确认拿不到的章节直接失败，不再预取 + 单章兜底
+        String negativeKey = FQChapterCacheService.cacheKey(bookId, chapterId);
+        FQNegativeCacheService.Entry negative = negativeCacheService.get(FQNegativeCacheService.Scope.CHAPTER, negativeKey);
+        if (negative != null) {
+            return CompletableFuture.completedFuture(negative.toResponse());
+        }
 
-                cached = chapterCache.getIfPresent(cacheKey);
-                if (cached != null) {
-                    return FQNovelResponse.success(cached);
+        // 预取由多个请求共享，不受单个请求截止时间约束；单章兜底只为当前请求服务，沿用其截止时间
+        RequestDeadline deadline = RequestDeadline.current();
+
+        // 预取：优先在目录中定位章节顺序，批量拉取后缓存；全程异步组合，不占用线程等待
+        return prefetchAndCacheDedup(bookId, chapterId)
+            // 预取失败/被取消不影响本次读取：继续走缓存检查与单章兜底
+            .handle((ignored, e) -> null)
+            .thenCompose(ignored -> {
+                FQNovelChapterInfo hit = chapterCacheService.get(bookId, chapterId, currentVersion(bookId, chapterId));
+                if (hit != null) {
+                    return CompletableFuture.completedFuture(FQNovelResponse.success(hit));
                 }
-
-                // 兜底：仍未命中则只取单章
-                FQNovelResponse<FqIBatchFullResponse> single = fqNovelService.batchFull(chapterId, bookId, true).get();
-                if (single.getCode() != 0 || single.getData() == null) {
-                    return FQNovelResponse.error("获取章节内容失败: " + single.getMessage());
+                // 预取时上游已确认缺失：单章兜底也拿不到
+                FQNegativeCacheService.Entry missing = negativeCacheService.get(FQNegativeCacheService.Scope.CHAPTER, negativeKey);
+                if (missing != null) {
+                    return CompletableFuture.completedFuture(missing.<FQNovelChapterInfo>toResponse());
                 }
+                // 兜底：仍未命中则只取单章
+                return fetchSingleChapter(bookId, chapterId, deadline);
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("单章获取失败 - bookId: {}, chapterId: {}", bookId, chapterId, cause);
+                return FQNovelResponse.error("获取章节内容失败: " + (cause.getMessage() != null ? cause.getMessage() : cause.toString()));
+            });
+    }
 
-                Map<String, ItemContent> dataMap = single.getData().getData();
-                if (dataMap == null || dataMap.isEmpty()) {
-                    return FQNovelResponse.error("未找到章节数据");
-                }
+    private CompletableFuture<FQNovelResponse<FQNovelChapterInfo>> fetchSingleChapter(String bookId, String chapterId,
+                                                                                     RequestDeadline deadline) {
+        // 单章兜底属于交互式阅读（读者正在等待），走交互式线程池
+        Executor executor = interactiveExecutor != null ? interactiveExecutor : ForkJoinPool.commonPool();
+        return fqNovelService.batchFull(chapterId, bookId, true, executor, deadline).thenApply(single -> {
+            if (single.getCode() != 0 || single.getData() == null) {
+                return FQNovelResponse.<FQNovelChapterInfo>error("获取章节内容失败: " + single.getMessage());
+            }
 
-                ItemContent itemContent = dataMap.getOrDefault(chapterId, dataMap.values().iterator().next());
-                FQNovelChapterInfo info = buildChapterInfo(bookId, chapterId, itemContent);
-                chapterCache.put(cacheKey, info);
-                return FQNovelResponse.success(info);
+            Map<String, ItemContent> dataMap = single.getData().getData();
+            if (dataMap == null || dataMap.isEmpty()) {
+                recordMissing(bookId, chapterId);
+                return FQNovelResponse.<FQNovelChapterInfo>error("未找到章节数据");
+            }
 
+            ItemContent itemContent = dataMap.getOrDefault(chapterId, dataMap.values().iterator().next());
+            try {
+                FQNovelChapterInfo info = chapterDecoder.decode(bookId, chapterId, itemContent);
+                chapterCacheService.put(bookId, chapterId, info, currentVersion(bookId, chapterId));
+                return FQNovelResponse.success(info);
             } catch (Exception e) {
-                log.error("单章获取失败 - bookId: {}, chapterId: {}", request.getBookId(), request.getChapterId(), e);
-                return FQNovelResponse.error("获取章节内容失败: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+                throw new CompletionException(e);
             }
-        }, executor != null ? executor : ForkJoinPool.commonPool());
+        });
     }
 
     private CompletableFuture<Void> prefetchAndCacheDedup(String bookId, String chapterId) {
-        String computedKey;
-        try {
-            computedKey = computePrefetchKey(bookId, chapterId);
-        } catch (Exception e) {
-            // 目录失败时退化为单章 key，仍可去重并发的同章请求
-            computedKey = bookId + ":single:" + chapterId;
-        }
-        final String key = computedKey;
+        return directoryCacheService.getIndex(bookId).thenCompose(directory -> {
+            if (directory.isEmpty()) {
+                // 目录不可用：交给单章兜底
+                return CompletableFuture.completedFuture(null);
+            }
 
-        CompletableFuture<Void> existing = inflightPrefetch.get(key);
-        if (existing != null) {
-            return existing;
-        }
+            int index = directory.indexOf(chapterId);
+            if (index < 0) {
+                // 章节不在目录中（目录尚未刷新到新章节）：单章 key 仍可去重并发的同章请求
+                String key = bookId + ":single:" + chapterId;
+                return prefetchPlanner.ensure(key, Collections.singletonList(chapterId), itemId -> isAvailable(bookId, itemId, directory),
+                    missing -> schedule(key, PrefetchScheduler.Priority.FOREGROUND, bookId, missing, directory));
+            }
 
-        CompletableFuture<Void> created = new CompletableFuture<>();
-        existing = inflightPrefetch.putIfAbsent(key, created);
-        if (existing != null) {
-            return existing;
-        }
+            // 对齐窗口：同窗口的读者共享一次拉取，相邻窗口互不重叠
+            int size = prefetchSize();
+            int start = PrefetchPlanner.windowStart(index, size);
+            int end = Math.min(directory.size(), start + size);
+            String key = PrefetchPlanner.windowKey(bookId, start, size);
+            CompletableFuture<Void> window = prefetchPlanner.ensure(key, directory.itemIds(start, end),
+                itemId -> isAvailable(bookId, itemId, directory),
+                missing -> schedule(key, PrefetchScheduler.Priority.FOREGROUND, bookId, missing, directory));
+            // 窗口可能是排队中的预读任务：读者开始等待，提升优先级
+            prefetchScheduler.promote(key);
+            return window;
+        });
+    }
 
-        // 注意：这里不能用与 getChapterContent 相同的线程池，否则在下载器高并发时容易出现“线程都在 join 等待”的死锁
-        CompletableFuture.runAsync(() -> {
-            try {
-                doPrefetchAndCache(bookId, chapterId);
-                created.complete(null);
-            } catch (Exception e) {
-                created.completeExceptionally(e);
-            } finally {
-                inflightPrefetch.remove(key);
-            }
-        }, prefetchExecutor != null ? prefetchExecutor : ForkJoinPool.commonPool());
+    /**
+     * 整本下载：按与单章预取相同的对齐窗口拉取，与读者共享窗口去重和缓存；BULK 优先级，排在读者和预读之后
+     *
+     * @param start 窗口起点（需按 {@link #windowSize()} 对齐）
+     */
+    public CompletableFuture<Void> prefetchWindow(String bookId, DirectoryIndex directory, int start) {
+        int size = prefetchSize();
+        int end = Math.min(directory.size(), start + size);
+        String key = PrefetchPlanner.windowKey(bookId, start, size);
+        return prefetchPlanner.ensure(key, directory.itemIds(start, end), itemId -> isAvailable(bookId, itemId, directory),
+            missing -> schedule(key, PrefetchScheduler.Priority.BULK, bookId, missing, directory));
+    }
 
-        return created;
+    public int windowSize() {
+        return prefetchSize();
     }
 
-    private String computePrefetchKey(String bookId, String chapterId) throws Exception {
-        List<String> itemIds = getDirectoryItemIds(bookId);
-        if (itemIds == null || itemIds.isEmpty()) {
-            return bookId + ":single:" + chapterId;
-        }
-        int index = itemIds.indexOf(chapterId);
-        if (index < 0) {
-            return bookId + ":single:" + chapterId;
-        }
-        int size = Math.max(1, Math.min(30, downloadProperties.getChapterPrefetchSize()));
-        int bucketStart = (index / size) * size;
-        return bookId + ":bucket:" + bucketStart + ":" + size;
+    private CompletableFuture<Void> schedule(String key, PrefetchScheduler.Priority priority, String bookId,
+                                             List<String> missing, DirectoryIndex directory) {
+        return prefetchScheduler.submit(key, priority, () -> fetchAndCache(bookId, missing, directory));
     }
 
-    private void doPrefetchAndCache(String bookId, String chapterId) throws Exception {
-        List<String> itemIds = getDirectoryItemIds(bookId);
-        if (itemIds == null || itemIds.isEmpty()) {
+    /**
+     * 顺序阅读时，读者接近当前窗口末尾就在后台拉取后续窗口（命中缓存时也会触发），
+     * 把上游拉取的耗时藏在阅读时间里
+     */
+    private void readAhead(String bookId, String readerId, String chapterId, DirectoryIndex directory) {
+        if (!downloadProperties.isChapterReadAheadEnabled() || directory == null || directory.isEmpty()) {
             return;
         }
-
-        int index = itemIds.indexOf(chapterId);
-        List<String> batchIds;
+        int index = directory.indexOf(chapterId);
         if (index < 0) {
-            batchIds = Collections.singletonList(chapterId);
-        } else {
-            int size = Math.max(1, Math.min(30, downloadProperties.getChapterPrefetchSize()));
-            int endExclusive = Math.min(itemIds.size(), index + size);
-            batchIds = itemIds.subList(index, endExclusive);
+            return;
         }
 
-        // 批量拉取并解密
-        String joined = String.join(",", batchIds);
-        FQNovelResponse<FqIBatchFullResponse> batch = fqNovelService.batchFull(joined, bookId, true).get();
-        if (batch.getCode() != 0 || batch.getData() == null || batch.getData().getData() == null) {
+        int size = prefetchSize();
+        int minDistance = Math.max(1, downloadProperties.getChapterReadAheadMinDistance());
+        int maxDistance = Math.max(minDistance, downloadProperties.getChapterReadAheadMaxDistance());
+        int distance = readAheadTracker.onRead(bookId, readerId, index, minDistance, maxDistance);
+        if (distance < 0) {
+            // 读者跳读：取消同书中已没有顺序阅读的读者需要的排队预读窗口
+            prefetchScheduler.cancelSpeculative(key -> isUnneededWindow(key, bookId, size, maxDistance));
+            return;
+        }
+        if (distance == 0) {
             return;
         }
 
-        for (String itemId : batchIds) {
-            ItemContent content = batch.getData().getData().get(itemId);
-            if (content == null) {
+        int target = Math.min(directory.size() - 1, index + distance);
+        int windowEnd = PrefetchPlanner.windowStart(index, size) + size;
+        for (int start = windowEnd; start <= target; start += size) {
+            String key = PrefetchPlanner.windowKey(bookId, start, size);
+            if (prefetchPlanner.isInFlight(key)) {
                 continue;
             }
-            try {
-                FQNovelChapterInfo info = buildChapterInfo(bookId, itemId, content);
-                chapterCache.put(cacheKey(bookId, itemId), info);
-            } catch (Exception e) {
-                log.debug("预取章节处理失败 - bookId: {}, itemId: {}", bookId, itemId, e);
-            }
+            int end = Math.min(directory.size(), start + size);
+            readAheadWindows.increment();
+            prefetchPlanner.ensure(key, directory.itemIds(start, end), itemId -> isAvailable(bookId, itemId, directory),
+                    missing -> schedule(key, PrefetchScheduler.Priority.SPECULATIVE, bookId, missing, directory))
+                .exceptionally(e -> {
+                    log.debug("预读失败 - bookId: {}, window: {}", bookId, key, unwrap(e));
+                    return null;
+                });
         }
     }
 
-    private List<String> getDirectoryItemIds(String bookId) throws Exception {
-        List<String> cached = directoryCache.getIfPresent(bookId);
-        if (cached != null && !cached.isEmpty()) {
-            return cached;
-        }
-
-        CompletableFuture<List<String>> inFlight = inflightDirectory.get(bookId);
-        if (inFlight != null) {
-            try {
-                return inFlight.get();
-            } catch (Exception e) {
-                return Collections.emptyList();
-            }
-        }
-
-        CompletableFuture<List<String>> created = new CompletableFuture<>();
-        inFlight = inflightDirectory.putIfAbsent(bookId, created);
-        if (inFlight != null) {
-            try {
-                return inFlight.get();
-            } catch (Exception e) {
-                return Collections.emptyList();
-            }
+    private boolean isUnneededWindow(String key, String bookId, int size, int maxDistance) {
+        String prefix = bookId + ":window:";
+        if (!key.startsWith(prefix)) {
+            return false;
         }
-
-        // 同上：目录获取也使用独立线程池，避免与业务线程互相等待
-        CompletableFuture.runAsync(() -> {
-            try {
-                FQDirectoryRequest directoryRequest = new FQDirectoryRequest();
-                directoryRequest.setBookId(bookId);
-                directoryRequest.setBookType(0);
-                directoryRequest.setNeedVersion(true);
-
-                FQNovelResponse<FQDirectoryResponse> resp = fqSearchService.getBookDirectory(directoryRequest).get();
-                if (resp.getCode() != 0 || resp.getData() == null || resp.getData().getItemDataList() == null) {
-                    created.complete(Collections.emptyList());
-                    return;
-                }
-
-                List<String> itemIds = new ArrayList<>();
-                for (FQDirectoryResponse.ItemData item : resp.getData().getItemDataList()) {
-                    if (item != null && item.getItemId() != null && !item.getItemId().trim().isEmpty()) {
-                        itemIds.add(item.getItemId().trim());
-                    }
-                }
-
-                directoryCache.put(bookId, itemIds);
-                created.complete(itemIds);
-            } catch (Exception e) {
-                created.complete(Collections.emptyList());
-            } finally {
-                inflightDirectory.remove(bookId);
-            }
-        }, prefetchExecutor != null ? prefetchExecutor : ForkJoinPool.commonPool());
-
+        int start;
         try {
-            return created.get();
-        } catch (Exception e) {
-            return Collections.emptyList();
+            start = Integer.parseInt(key.substring(prefix.length(), key.indexOf(':', prefix.length())));
+        } catch (RuntimeException e) {
+            return false;
         }
+        return !readAheadTracker.isNeeded(bookId, start, start + size, maxDistance);
     }
 
-    private FQNovelChapterInfo buildChapterInfo(String bookId, String chapterId, ItemContent itemContent) throws Exception {
-        String decryptedContent;
-        Long contentKeyver = itemContent.getKeyVersion();
-        String key = registerKeyService.getDecryptionKey(contentKeyver);
-        decryptedContent = FqCrypto.decryptAndDecompressContent(itemContent.getContent(), key);
-
-        String txtContent = extractTextFromHtml(decryptedContent);
-
-        FQNovelChapterInfo chapterInfo = new FQNovelChapterInfo();
-        chapterInfo.setChapterId(chapterId);
-        chapterInfo.setBookId(bookId);
-        chapterInfo.setRawContent(decryptedContent);
-        chapterInfo.setTxtContent(txtContent);
-
-        String title = itemContent.getTitle();
-        if (title == null || title.trim().isEmpty()) {
-            Pattern titlePattern = Pattern.compile("<h1[^>]*>.*?<blk[^>]*>([^<]*)</blk>.*?</h1>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-            Matcher titleMatcher = titlePattern.matcher(decryptedContent);
-            if (titleMatcher.find()) {
-                title = titleMatcher.group(1).trim();
-            } else {
-                title = "章节标题";
-            }
-        }
-        chapterInfo.setTitle(title);
-
-        FQNovelData novelData = itemContent.getNovelData();
-        chapterInfo.setAuthorName(novelData != null ? novelData.getAuthor() : "未知作者");
-        chapterInfo.setWordCount(txtContent.length());
-        chapterInfo.setUpdateTime(System.currentTimeMillis());
-
-        return chapterInfo;
+    private int prefetchSize() {
+        return Math.max(1, Math.min(30, downloadProperties.getChapterPrefetchSize()));
     }
 
-    private static String cacheKey(String bookId, String chapterId) {
-        return bookId + ":" + chapterId;
+    /**
+     * 章节已缓存（磁盘记录需与目录版本一致），或最近确认拿不到：预取时跳过
+     */
+    private boolean isAvailable(String bookId, String chapterId, DirectoryIndex directory) {
+        return chapterCacheService.contains(bookId, chapterId, directory.versionOf(chapterId))
+            || negativeCacheService.get(FQNegativeCacheService.Scope.CHAPTER, FQChapterCacheService.cacheKey(bookId, chapterId)) != null;
     }
 
-    private String extractTextFromHtml(String htmlContent) {
-        if (htmlContent == null || htmlContent.trim().isEmpty()) {
-            return "";
-        }
+    private CompletableFuture<Void> fetchAndCache(String bookId, List<String> batchIds, DirectoryIndex directory) {
+        // 批量拉取（及非延迟解密时的解密/提取文本）都在预取线程池内完成，不挤占交互式/批量下载线程池
+        Executor executor = prefetchExecutor != null ? prefetchExecutor : ForkJoinPool.commonPool();
+        String joined = String.join(",", batchIds);
+        boolean lazyDecrypt = downloadProperties.isChapterLazyDecrypt();
+        long startNs = System.nanoTime();
+        return fqNovelService.batchFull(joined, bookId, true, executor, RequestDeadline.none()).thenCompose(batch -> {
+            readAheadTracker.recordFetch(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+            if (batch.getCode() != 0 || batch.getData() == null || batch.getData().getData() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
 
-        StringBuilder textBuilder = new StringBuilder();
-        try {
-            Pattern blkPattern = Pattern.compile("<blk[^>]*>([^<]*)</blk>", Pattern.CASE_INSENSITIVE);
-            Matcher matcher = blkPattern.matcher(htmlContent);
-            while (matcher.find()) {
-                String text = matcher.group(1);
-                if (text != null && !text.trim().isEmpty()) {
-                    textBuilder.append(text.trim()).append("\n");
+            List<CompletableFuture<Void>> decodes = lazyDecrypt ? null : new ArrayList<>(batchIds.size());
+            for (String itemId : batchIds) {
+                ItemContent content = batch.getData().getData().get(itemId);
+                if (content == null) {
+                    // 批量请求成功但未返回该章节（不存在/未解锁）
+                    recordMissing(bookId, itemId);
+                    continue;
                 }
-            }
-            if (textBuilder.length() == 0) {
-                String text = htmlContent.replaceAll("<[^>]+>", "").trim();
-                if (!text.isEmpty()) {
-                    textBuilder.append(text);
+                if (lazyDecrypt) {
+                    // 只缓存密文，真正被读到时才解密，整桶预取中未读的章节不再白白解密
+                    chapterCacheService.putEncrypted(bookId, itemId,
+                        EncryptedChapter.of(bookId, itemId, content), directory.versionOf(itemId));
+                } else {
+                    // 各章节在解码线程池上并行解密，窗口耗时取决于最慢的一章
+                    decodes.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            FQNovelChapterInfo info = chapterDecoder.decode(bookId, itemId, content);
+                            chapterCacheService.put(bookId, itemId, info, directory.versionOf(itemId));
+                        } catch (Exception e) {
+                            log.debug("预取章节处理失败 - bookId: {}, itemId: {}", bookId, itemId, e);
+                        }
+                    }, decodeExecutor));
                 }
             }
-        } catch (Exception e) {
-            return htmlContent.replaceAll("<[^>]+>", "").trim();
-        }
-        return textBuilder.toString().trim();
+            // 窗口在全部章节解码完成时完成，不占用预取线程等待解码线程池
+            return decodes != null
+                ? CompletableFuture.allOf(decodes.toArray(new CompletableFuture[0]))
+                : CompletableFuture.<Void>completedFuture(null);
+        });
     }
 
-    /**
-     * 轻量 LRU + TTL 缓存（无额外依赖）。
-     */
-    static class TimedLruCache<K, V> {
-        private final Map<K, Entry<V>> map;
-        private final int maxEntries;
-        private final long ttlMs;
-
-        TimedLruCache(int maxEntries, long ttlMs) {
-            this.maxEntries = Math.max(1, maxEntries);
-            this.ttlMs = ttlMs;
-            this.map = Collections.synchronizedMap(new LinkedHashMap<K, Entry<V>>(64, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
-                    return size() > TimedLruCache.this.maxEntries;
-                }
-            });
-        }
-
-        V getIfPresent(K key) {
-            Entry<V> entry = map.get(key);
-            if (entry == null) {
-                return null;
-            }
-            if (ttlMs > 0 && entry.expiresAtMs < System.currentTimeMillis()) {
-                map.remove(key);
-                return null;
-            }
-            return entry.value;
-        }
-
-        void put(K key, V value) {
-            long expiresAt = ttlMs > 0 ? System.currentTimeMillis() + ttlMs : Long.MAX_VALUE;
-            map.put(key, new Entry<>(value, expiresAt));
-        }
+    private void recordMissing(String bookId, String chapterId) {
+        negativeCacheService.record(FQNegativeCacheService.Scope.CHAPTER, FQChapterCacheService.cacheKey(bookId, chapterId),
+            FQNegativeCacheService.Reason.NOT_FOUND, null, "未找到章节数据");
+    }
 
-        static class Entry<V> {
-            final V value;
-            final long expiresAtMs;
+    private String currentVersion(String bookId, String chapterId) {
+        DirectoryIndex directory = directoryCacheService.getCachedIndex(bookId);
+        return directory != null ? directory.versionOf(chapterId) : null;
+    }
 
-            Entry(V value, long expiresAtMs) {
-                this.value = value;
-                this.expiresAtMs = expiresAtMs;
-            }
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
-
+        return cause;
     }
 }
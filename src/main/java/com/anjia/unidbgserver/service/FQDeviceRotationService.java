@@ -21,6 +21,7 @@ import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.LinkedHashMap;
 import java.util.concurrent.ThreadLocalRandom;
@@ -262,6 +263,21 @@ public class FQDeviceRotationService {
         return "";
     }
 
+    /**
+     * 上游错误信息是否像风控（换设备可能好转）：这类错误可重试，不应记录负缓存
+     */
+    public static boolean isRiskControlMessage(String message) {
+        if (message == null || message.trim().isEmpty()) {
+            return false;
+        }
+        String m = message.toLowerCase(Locale.ROOT);
+        return m.contains("illegal_access")
+            || m.contains("risk")
+            || m.contains("风控")
+            || m.contains("forbidden")
+            || m.contains("permission");
+    }
+
     /**
      * 尝试旋转设备（带冷却时间，避免并发风暴）。
      *
@@ -0,0 +1,448 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.config.FQDownloadProperties;
+import com.anjia.unidbgserver.dto.FQDirectoryRequest;
+import com.anjia.unidbgserver.dto.FQDirectoryResponse;
+import com.anjia.unidbgserver.dto.FQNovelResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 书籍目录缓存：
+ * - 首次访问时拉取目录并建立索引（章节顺序、位置、内容版本），并发请求共享同一次拉取；
+ * - 后台定时带上 item_data_list / book_info 的 md5 做条件刷新：md5 未变则沿用已建好的索引；
+ * - md5 变化时与旧索引逐章比对，只从章节缓存中移除内容版本变化（或已下架）的章节。
+ * - 目录/书籍信息接口按 stale-while-revalidate 提供：刷新间隔内直接返回；超出但仍在宽限期内时
+ *   立即返回旧数据并在后台刷新（每本书同时只有一个刷新）；超出宽限期才等待刷新结果。
+ * 长时间未被访问的目录按 directoryCacheTtlMs 淘汰，不再刷新。
+ */
+@Slf4j
+@Service
+public class FQDirectoryCacheService {
+
+    @Resource
+    private FQDownloadProperties downloadProperties;
+
+    @Resource
+    private FQSearchService fqSearchService;
+
+    @Resource
+    private FQChapterCacheService chapterCacheService;
+
+    @Resource
+    private FQNegativeCacheService negativeCacheService;
+
+    @Resource(name = "fqCacheScheduler")
+    private Scheduler cacheScheduler;
+
+    @Resource(name = "fqCacheMaintenanceExecutor")
+    private ScheduledExecutorService maintenanceExecutor;
+
+    private Cache<String, DirectoryEntry> directoryCache;
+    private final ConcurrentHashMap<String, CompletableFuture<LoadResult>> inflight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inflightRefresh = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final LongAdder changedCount = new LongAdder();
+    private final LongAdder evictedChapters = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder blockingRefreshes = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int dirMax = Math.max(1, downloadProperties.getDirectoryCacheMaxEntries());
+        long ttlMs = downloadProperties.getDirectoryCacheTtlMs();
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(dirMax)
+            .scheduler(cacheScheduler)
+            .recordStats();
+        if (ttlMs > 0) {
+            // 定时刷新会保持目录最新，只需淘汰长时间无人访问的书籍
+            builder.expireAfterAccess(ttlMs, TimeUnit.MILLISECONDS);
+        }
+        this.directoryCache = builder.build();
+
+        long interval = downloadProperties.getDirectoryRefreshIntervalMs();
+        if (interval > 0) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::refreshDue, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 已缓存的目录索引（不触发拉取）；未缓存时返回 null
+     */
+    public DirectoryIndex getCachedIndex(String bookId) {
+        DirectoryEntry entry = directoryCache.getIfPresent(bookId);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccessMs = System.currentTimeMillis();
+        return entry.index;
+    }
+
+    /**
+     * 获取目录索引：命中缓存直接返回，否则拉取（并发请求共享）；拉取失败返回 EMPTY（不缓存）
+     */
+    public CompletableFuture<DirectoryIndex> getIndex(String bookId) {
+        DirectoryIndex cached = getCachedIndex(bookId);
+        if (cached != null && !cached.isEmpty()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return load(bookId).thenApply(result -> result.entry != null ? result.entry.index : DirectoryIndex.EMPTY);
+    }
+
+    /**
+     * 获取完整目录响应（stale-while-revalidate）；未缓存时拉取，失败时原样返回上游错误
+     */
+    public CompletableFuture<FQNovelResponse<FQDirectoryResponse>> getDirectory(String bookId) {
+        DirectoryEntry entry = directoryCache.getIfPresent(bookId);
+        if (entry == null) {
+            return load(bookId).thenApply(result -> result.response);
+        }
+
+        long now = System.currentTimeMillis();
+        entry.lastAccessMs = now;
+        long age = now - entry.checkedAtMs;
+        long freshMs = freshMs();
+        if (age < freshMs) {
+            return CompletableFuture.completedFuture(FQNovelResponse.success(entry.response));
+        }
+        if (age < freshMs + Math.max(0L, downloadProperties.getDirectoryStaleGraceMs())) {
+            staleServed.increment();
+            refreshOnce(bookId);
+            return CompletableFuture.completedFuture(FQNovelResponse.success(entry.response));
+        }
+
+        // 超出宽限期：等待刷新；刷新失败时仍返回旧数据（比报错更有用）
+        blockingRefreshes.increment();
+        return refreshOnce(bookId).handle((v, e) -> {
+            DirectoryEntry latest = directoryCache.getIfPresent(bookId);
+            return FQNovelResponse.success(latest != null ? latest.response : entry.response);
+        });
+    }
+
+    private long freshMs() {
+        long interval = downloadProperties.getDirectoryRefreshIntervalMs();
+        return interval > 0 ? interval : Math.max(0L, downloadProperties.getDirectoryCacheTtlMs());
+    }
+
+    private CompletableFuture<LoadResult> load(String bookId) {
+        CompletableFuture<LoadResult> inFlight = inflight.get(bookId);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        FQNegativeCacheService.Entry negative = negativeCacheService.get(FQNegativeCacheService.Scope.BOOK, bookId);
+        if (negative != null) {
+            return CompletableFuture.completedFuture(new LoadResult(negative.toResponse(), null));
+        }
+
+        CompletableFuture<LoadResult> created = new CompletableFuture<>();
+        inFlight = inflight.putIfAbsent(bookId, created);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        // 目录由多个请求共享，不受单个请求截止时间约束
+        fetchDirectory(newRequest(bookId, null)).whenComplete((resp, e) -> {
+            try {
+                if (e != null) {
+                    created.complete(new LoadResult(FQNovelResponse.error("获取书籍目录失败: " + e.getMessage()), null));
+                    return;
+                }
+                DirectoryEntry entry = toEntry(resp);
+                if (entry != null) {
+                    directoryCache.put(bookId, entry);
+                } else if (resp != null && resp.getCode() != null && resp.getCode() != 0 && resp.getCode() != -1
+                    && !FQDeviceRotationService.isRiskControlMessage(resp.getMessage())) {
+                    // 上游错误码（书籍不存在/下架等）：短时间内直接失败；-1 为本地异常、风控可重试，均不记录
+                    negativeCacheService.record(FQNegativeCacheService.Scope.BOOK, bookId,
+                        FQNegativeCacheService.Reason.UPSTREAM_ERROR, resp.getCode(), resp.getMessage());
+                }
+                created.complete(new LoadResult(resp, entry));
+            } catch (Exception ex) {
+                created.complete(new LoadResult(FQNovelResponse.error("获取书籍目录失败: " + ex.getMessage()), null));
+            } finally {
+                inflight.remove(bookId, created);
+            }
+        });
+
+        return created;
+    }
+
+    /**
+     * 请求上游目录；线程池拒绝等同步抛出的异常转为失败的 future，
+     * 保证 inflight/inflightRefresh 中的占位一定会完成并移除
+     */
+    private CompletableFuture<FQNovelResponse<FQDirectoryResponse>> fetchDirectory(FQDirectoryRequest request) {
+        try {
+            return RequestDeadline.detached(() -> fqSearchService.getBookDirectory(request));
+        } catch (RuntimeException e) {
+            CompletableFuture<FQNovelResponse<FQDirectoryResponse>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 定时任务：条件刷新自上次检查以来被访问过的目录；逐本串行，避免集中占用签名和上游配额
+     */
+    private void refreshDue() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        long interval = downloadProperties.getDirectoryRefreshIntervalMs();
+        long now = System.currentTimeMillis();
+
+        List<String> due = new ArrayList<>();
+        for (Map.Entry<String, DirectoryEntry> item : directoryCache.asMap().entrySet()) {
+            DirectoryEntry entry = item.getValue();
+            if (now - entry.checkedAtMs >= interval && entry.lastAccessMs > entry.checkedAtMs) {
+                due.add(item.getKey());
+            }
+        }
+
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (String bookId : due) {
+            chain = chain.thenCompose(ignored -> refreshOnce(bookId));
+        }
+        chain.whenComplete((v, e) -> refreshing.set(false));
+    }
+
+    /**
+     * 条件刷新（每本书同时只有一个刷新在进行，并发调用共享结果）
+     */
+    private CompletableFuture<Void> refreshOnce(String bookId) {
+        CompletableFuture<Void> existing = inflightRefresh.get(bookId);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        existing = inflightRefresh.putIfAbsent(bookId, created);
+        if (existing != null) {
+            return existing;
+        }
+        refresh(bookId).whenComplete((v, e) -> {
+            inflightRefresh.remove(bookId, created);
+            created.complete(null);
+        });
+        return created;
+    }
+
+    private CompletableFuture<Void> refresh(String bookId) {
+        DirectoryEntry old = directoryCache.asMap().get(bookId);
+        if (old == null || inflight.containsKey(bookId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        refreshCount.increment();
+
+        FQDirectoryRequest request = newRequest(bookId, old);
+        return fetchDirectory(request).handle((resp, e) -> {
+            if (e != null || resp == null || resp.getCode() != 0 || resp.getData() == null) {
+                // 刷新失败：保留旧目录，下一轮再试
+                log.debug("目录刷新失败 - bookId: {}, error: {}", bookId, e != null ? e.toString() : (resp != null ? resp.getMessage() : null));
+                return null;
+            }
+
+            FQDirectoryResponse data = resp.getData();
+            String listMd5 = md5Of(data, true);
+            boolean listUnchanged = isHit(data, true)
+                || (listMd5 != null && listMd5.equals(old.itemDataListMd5))
+                || data.getItemDataList() == null;
+            if (listUnchanged) {
+                unchangedCount.increment();
+                String bookInfoMd5 = md5Of(data, false);
+                boolean bookInfoChanged = data.getBookInfo() != null && !isHit(data, false)
+                    && bookInfoMd5 != null && !bookInfoMd5.equals(old.bookInfoMd5);
+                if (bookInfoChanged) {
+                    // 章节列表未变、书籍信息有变：沿用已建好的索引，只替换书籍信息
+                    DirectoryEntry updated = new DirectoryEntry(withBookInfo(old.response, data),
+                        old.index, old.itemDataListMd5, bookInfoMd5);
+                    updated.lastAccessMs = old.lastAccessMs;
+                    directoryCache.asMap().replace(bookId, old, updated);
+                } else {
+                    old.checkedAtMs = System.currentTimeMillis();
+                }
+                return null;
+            }
+
+            DirectoryEntry updated = toEntry(resp);
+            if (updated == null) {
+                return null;
+            }
+            if (data.getBookInfo() == null || isHit(data, false)) {
+                // 章节列表有变、书籍信息命中（上游省略）：沿用旧的书籍信息及其 md5
+                updated = new DirectoryEntry(withPreviousBookInfo(data, old.response),
+                    updated.index, updated.itemDataListMd5, old.bookInfoMd5);
+            }
+            int evicted = evictChangedChapters(bookId, old.index, updated.index);
+            changedCount.increment();
+            updated.lastAccessMs = old.lastAccessMs;
+            directoryCache.asMap().replace(bookId, old, updated);
+            log.info("目录已更新 - bookId: {}, 章节数: {} -> {}, 失效章节: {}",
+                bookId, old.index.size(), updated.index.size(), evicted);
+            return null;
+        });
+    }
+
+    /**
+     * 比对新旧索引，移除内容版本变化或已从目录中消失的章节；新增章节无需处理
+     */
+    private int evictChangedChapters(String bookId, DirectoryIndex previous, DirectoryIndex current) {
+        int evicted = 0;
+        for (int i = 0; i < previous.size(); i++) {
+            String itemId = previous.itemIdAt(i);
+            int position = current.indexOf(itemId);
+            String oldVersion = previous.versionAt(i);
+            String newVersion = position >= 0 ? current.versionAt(position) : null;
+            boolean removed = position < 0;
+            if (removed || (newVersion != null && !Objects.equals(oldVersion, newVersion))) {
+                chapterCacheService.invalidate(bookId, itemId);
+                negativeCacheService.invalidate(FQNegativeCacheService.Scope.CHAPTER, FQChapterCacheService.cacheKey(bookId, itemId));
+                evicted++;
+            }
+        }
+        evictedChapters.add(evicted);
+        return evicted;
+    }
+
+    private static FQDirectoryResponse withBookInfo(FQDirectoryResponse previous, FQDirectoryResponse latest) {
+        FQDirectoryResponse merged = new FQDirectoryResponse();
+        merged.setBanRecover(previous.getBanRecover());
+        merged.setAdditionalItemDataList(previous.getAdditionalItemDataList());
+        merged.setCatalogData(previous.getCatalogData());
+        merged.setItemDataList(previous.getItemDataList());
+        merged.setFieldCacheStatus(latest.getFieldCacheStatus() != null ? latest.getFieldCacheStatus() : previous.getFieldCacheStatus());
+        merged.setBookInfo(latest.getBookInfo());
+        merged.setSerialCount(latest.getSerialCount() != null ? latest.getSerialCount() : previous.getSerialCount());
+        return merged;
+    }
+
+    private static FQDirectoryResponse withPreviousBookInfo(FQDirectoryResponse latest, FQDirectoryResponse previous) {
+        FQDirectoryResponse merged = new FQDirectoryResponse();
+        merged.setBanRecover(latest.getBanRecover());
+        merged.setAdditionalItemDataList(latest.getAdditionalItemDataList());
+        merged.setCatalogData(latest.getCatalogData());
+        merged.setItemDataList(latest.getItemDataList());
+        merged.setFieldCacheStatus(latest.getFieldCacheStatus());
+        merged.setBookInfo(previous.getBookInfo());
+        merged.setSerialCount(latest.getSerialCount() != null ? latest.getSerialCount() : previous.getSerialCount());
+        return merged;
+    }
+
+    private static FQDirectoryRequest newRequest(String bookId, DirectoryEntry previous) {
+        FQDirectoryRequest request = new FQDirectoryRequest();
+        request.setBookId(bookId);
+        request.setBookType(0);
+        request.setNeedVersion(true);
+        if (previous != null) {
+            request.setItemDataListMd5(previous.itemDataListMd5);
+            request.setBookInfoMd5(previous.bookInfoMd5);
+        }
+        return request;
+    }
+
+    private static DirectoryEntry toEntry(FQNovelResponse<FQDirectoryResponse> resp) {
+        if (resp == null || resp.getCode() != 0 || resp.getData() == null || resp.getData().getItemDataList() == null) {
+            return null;
+        }
+
+        FQDirectoryResponse data = resp.getData();
+        DirectoryIndex index = DirectoryIndex.from(data.getItemDataList());
+        if (index.isEmpty()) {
+            return null;
+        }
+        return new DirectoryEntry(data, index, md5Of(data, true), md5Of(data, false));
+    }
+
+    private static FQDirectoryResponse.CacheInfo cacheInfo(FQDirectoryResponse data, boolean itemDataList) {
+        FQDirectoryResponse.FieldCacheStatus status = data.getFieldCacheStatus();
+        if (status == null) {
+            return null;
+        }
+        return itemDataList ? status.getItemDataList() : status.getBookInfo();
+    }
+
+    private static String md5Of(FQDirectoryResponse data, boolean itemDataList) {
+        FQDirectoryResponse.CacheInfo info = cacheInfo(data, itemDataList);
+        if (info == null || info.getMd5() == null || info.getMd5().trim().isEmpty()) {
+            return null;
+        }
+        return info.getMd5().trim();
+    }
+
+    private static boolean isHit(FQDirectoryResponse data, boolean itemDataList) {
+        FQDirectoryResponse.CacheInfo info = cacheInfo(data, itemDataList);
+        return info != null && Boolean.TRUE.equals(info.getHit());
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = directoryCache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", directoryCache.estimatedSize());
+        directoryCache.policy().eviction().ifPresent(eviction -> map.put("maximum", eviction.getMaximum()));
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        map.put("refreshCount", refreshCount.sum());
+        map.put("unchangedCount", unchangedCount.sum());
+        map.put("changedCount", changedCount.sum());
+        map.put("evictedChapters", evictedChapters.sum());
+        map.put("staleServed", staleServed.sum());
+        map.put("blockingRefreshes", blockingRefreshes.sum());
+        return map;
+    }
+
+    private static final class LoadResult {
+        final FQNovelResponse<FQDirectoryResponse> response;
+        final DirectoryEntry entry;
+
+        LoadResult(FQNovelResponse<FQDirectoryResponse> response, DirectoryEntry entry) {
+            this.response = response;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * 缓存的目录：原始响应 + 目录索引 + 上游返回的 md5
+     */
+    static final class DirectoryEntry {
+        final FQDirectoryResponse response;
+        final DirectoryIndex index;
+        final String itemDataListMd5;
+        final String bookInfoMd5;
+        volatile long checkedAtMs;
+        volatile long lastAccessMs;
+
+        DirectoryEntry(FQDirectoryResponse response, DirectoryIndex index, String itemDataListMd5, String bookInfoMd5) {
+            this.response = response;
+            this.index = index;
+            this.itemDataListMd5 = itemDataListMd5;
+            this.bookInfoMd5 = bookInfoMd5;
+            this.checkedAtMs = System.currentTimeMillis();
+            this.lastAccessMs = this.checkedAtMs;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.config.FQDownloadProperties;
+import com.anjia.unidbgserver.dto.FQDownloadJob;
+import com.anjia.unidbgserver.dto.FQChapterFormat;
+import com.anjia.unidbgserver.dto.FQNovelChapterInfo;
+import com.anjia.unidbgserver.dto.FQNovelRequest;
+import com.anjia.unidbgserver.dto.FQNovelResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 整本下载任务：
+ * - 按与单章预取相同的对齐窗口遍历目录，拉取结果写入章节缓存（与阅读请求共享缓存和窗口去重）；
+ * - 每完成一个窗口持久化一次检查点，进程重启后从检查点继续；
+ * - 客户端轮询进度，或以 NDJSON 流式读取已完成的章节。
+ */
+@Slf4j
+@Service
+public class FQDownloadJobService {
+
+    private static final String JOB_FILE_SUFFIX = ".json";
+    /**
+     * 流式读取时等待目录的上限（ms）
+     */
+    private static final long DIRECTORY_WAIT_MS = 60_000L;
+
+    @Resource
+    private FQDownloadProperties downloadProperties;
+
+    @Resource
+    private FQChapterPrefetchService chapterPrefetchService;
+
+    @Resource
+    private FQChapterCacheService chapterCacheService;
+
+    @Resource
+    private FQDirectoryCacheService directoryCacheService;
+
+    @Resource
+    private FQNegativeCacheService negativeCacheService;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource(name = "fqCacheMaintenanceExecutor")
+    private ScheduledExecutorService maintenanceExecutor;
+
+    private final ConcurrentHashMap<String, FQDownloadJob> jobs = new ConcurrentHashMap<>();
+    /**
+     * 正在执行的任务（取消后窗口循环尚未退出的也算在内，避免同一任务被重复启动）
+     */
+    private final Set<String> active = new HashSet<>();
+    private Path jobDirectory;
+
+    @PostConstruct
+    public void init() {
+        String dir = downloadProperties.getDownloadJobDir();
+        if (dir == null || dir.trim().isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(dir.trim());
+        try {
+            Files.createDirectories(path);
+            this.jobDirectory = path;
+        } catch (IOException e) {
+            log.warn("下载任务目录创建失败，任务进度不再持久化 - 目录: {}", dir, e);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + JOB_FILE_SUFFIX)) {
+            for (Path file : stream) {
+                try {
+                    FQDownloadJob job = objectMapper.readValue(file.toFile(), FQDownloadJob.class);
+                    if (job.getJobId() == null || job.getBookId() == null) {
+                        continue;
+                    }
+                    if (job.isFinished() && isExpired(job, now)) {
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    if (job.getStatus() == FQDownloadJob.Status.RUNNING) {
+                        // 上次运行中断：重新排队，从检查点继续
+                        job.setStatus(FQDownloadJob.Status.QUEUED);
+                    }
+                    jobs.put(job.getJobId(), job);
+                } catch (IOException e) {
+                    log.warn("下载任务检查点读取失败，已跳过 - 文件: {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("下载任务目录读取失败 - 目录: {}", dir, e);
+        }
+        if (!jobs.isEmpty()) {
+            log.info("已恢复下载任务 {} 个", jobs.size());
+        }
+    }
+
+    /**
+     * 服务就绪（签名器可用）后再恢复未完成的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeQueued() {
+        startQueued();
+    }
+
+    /**
+     * 提交整本下载；同一本书已有任务时复用：
+     * 进行中的直接返回，失败/取消的从检查点继续，已完成的从头检查一遍（已缓存章节不会重复拉取）
+     */
+    public FQDownloadJob submit(String bookId) {
+        FQDownloadJob job;
+        synchronized (this) {
+            cleanupExpired();
+            job = findByBookId(bookId);
+            if (job == null) {
+                job = new FQDownloadJob();
+                job.setJobId(UUID.randomUUID().toString().replace("-", ""));
+                job.setBookId(bookId);
+                job.setStatus(FQDownloadJob.Status.QUEUED);
+                job.setNextIndex(0);
+                job.setCachedChapters(0);
+                job.setMissingChapters(0);
+                job.setCreatedAt(System.currentTimeMillis());
+                job.setUpdatedAt(job.getCreatedAt());
+                jobs.put(job.getJobId(), job);
+            } else {
+                synchronized (job) {
+                    if (job.isFinished()) {
+                        if (job.getStatus() == FQDownloadJob.Status.COMPLETED) {
+                            job.setNextIndex(0);
+                            job.setCachedChapters(0);
+                            job.setMissingChapters(0);
+                        }
+                        job.setStatus(FQDownloadJob.Status.QUEUED);
+                        job.setError(null);
+                        job.setUpdatedAt(System.currentTimeMillis());
+                    }
+                }
+            }
+        }
+        checkpoint(job);
+        startQueued();
+        return snapshot(job);
+    }
+
+    public FQDownloadJob get(String jobId) {
+        FQDownloadJob job = jobs.get(jobId);
+        return job != null ? snapshot(job) : null;
+    }
+
+    public List<FQDownloadJob> list() {
+        List<FQDownloadJob> result = new ArrayList<>(jobs.size());
+        for (FQDownloadJob job : jobs.values()) {
+            result.add(snapshot(job));
+        }
+        result.sort(Comparator.comparing(FQDownloadJob::getCreatedAt));
+        return result;
+    }
+
+    /**
+     * 取消任务：正在拉取的窗口完成后停止（窗口可能与读者共享，不中断）
+     */
+    public FQDownloadJob cancel(String jobId) {
+        FQDownloadJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isFinished()) {
+                return snapshot(job);
+            }
+            // 运行中的任务在当前窗口结束时退出并释放并发名额
+            job.setStatus(FQDownloadJob.Status.CANCELLED);
+            job.setUpdatedAt(System.currentTimeMillis());
+            job.notifyAll();
+        }
+        checkpoint(job);
+        log.info("下载任务已取消 - jobId: {}, bookId: {}", jobId, job.getBookId());
+        return snapshot(job);
+    }
+
+    private void startQueued() {
+        List<FQDownloadJob> toStart = new ArrayList<>();
+        synchronized (this) {
+            int maxConcurrent = Math.max(1, downloadProperties.getDownloadJobMaxConcurrent());
+            List<FQDownloadJob> queued = new ArrayList<>();
+            for (FQDownloadJob job : jobs.values()) {
+                if (job.getStatus() == FQDownloadJob.Status.QUEUED) {
+                    queued.add(job);
+                }
+            }
+            queued.sort(Comparator.comparing(FQDownloadJob::getCreatedAt));
+            for (FQDownloadJob job : queued) {
+                if (active.size() >= maxConcurrent) {
+                    break;
+                }
+                if (active.contains(job.getJobId())) {
+                    continue;
+                }
+                synchronized (job) {
+                    if (job.getStatus() != FQDownloadJob.Status.QUEUED) {
+                        continue;
+                    }
+                    job.setStatus(FQDownloadJob.Status.RUNNING);
+                    job.setUpdatedAt(System.currentTimeMillis());
+                }
+                active.add(job.getJobId());
+                toStart.add(job);
+            }
+        }
+        for (FQDownloadJob job : toStart) {
+            log.info("下载任务开始 - jobId: {}, bookId: {}, 检查点: {}", job.getJobId(), job.getBookId(), job.getNextIndex());
+            checkpoint(job);
+            maintenanceExecutor.execute(() -> nextWindow(job, 0));
+        }
+    }
+
+    /**
+     * 拉取检查点所在的窗口；窗口完成后回到维护线程继续下一个，避免已缓存窗口同步完成时递归过深
+     */
+    private void nextWindow(FQDownloadJob job, int attempt) {
+        if (job.getStatus() != FQDownloadJob.Status.RUNNING) {
+            release(job);
+            return;
+        }
+        CompletableFuture<DirectoryIndex> index;
+        try {
+            index = directoryCacheService.getIndex(job.getBookId());
+        } catch (RuntimeException e) {
+            // 同步抛出（如线程池拒绝）：按窗口失败重试，保证任务不会停留在 RUNNING 并占住并发名额
+            retryOrFail(job, attempt, "目录获取失败: " + e.getMessage());
+            return;
+        }
+        index.whenComplete((directory, e) -> {
+            if (e != null || directory == null || directory.isEmpty()) {
+                maintenanceExecutor.execute(() -> retryOrFail(job, attempt, "目录获取失败"));
+                return;
+            }
+
+            int start;
+            synchronized (job) {
+                job.setTotalChapters(directory.size());
+                start = job.getNextIndex() != null ? job.getNextIndex() : 0;
+            }
+            if (start >= directory.size()) {
+                finish(job, FQDownloadJob.Status.COMPLETED, null);
+                return;
+            }
+
+            // 检查点通常是窗口起点；窗口大小配置变化后按新大小对齐，已处理的部分不重复计数
+            int size = chapterPrefetchService.windowSize();
+            int aligned = PrefetchPlanner.windowStart(start, size);
+            int end = Math.min(directory.size(), aligned + size);
+            CompletableFuture<Void> window;
+            try {
+                window = chapterPrefetchService.prefetchWindow(job.getBookId(), directory, aligned);
+            } catch (RuntimeException error) {
+                window = new CompletableFuture<>();
+                window.completeExceptionally(error);
+            }
+            window.whenComplete((v, error) ->
+                maintenanceExecutor.execute(() -> onWindowDone(job, directory, start, end, attempt, error)));
+        });
+    }
+
+    private void onWindowDone(FQDownloadJob job, DirectoryIndex directory, int start, int end, int attempt, Throwable error) {
+        if (error != null) {
+            Throwable cause = unwrap(error);
+            retryOrFail(job, attempt, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            return;
+        }
+
+        int cached = 0;
+        int missing = 0;
+        for (int i = start; i < end; i++) {
+            String itemId = directory.itemIdAt(i);
+            if (chapterCacheService.contains(job.getBookId(), itemId, directory.versionOf(itemId))) {
+                cached++;
+            } else if (negativeCacheService.get(FQNegativeCacheService.Scope.CHAPTER,
+                FQChapterCacheService.cacheKey(job.getBookId(), itemId)) != null) {
+                missing++;
+            }
+        }
+        int pending = (end - start) - cached - missing;
+        if (pending > 0) {
+            // 上游本次未给出结果（错误码/风控），窗口整体重试
+            retryOrFail(job, attempt, "上游未返回 " + pending + " 个章节");
+            return;
+        }
+
+        synchronized (job) {
+            job.setNextIndex(end);
+            job.setCachedChapters(job.getCachedChapters() + cached);
+            job.setMissingChapters(job.getMissingChapters() + missing);
+            job.setError(null);
+            job.setUpdatedAt(System.currentTimeMillis());
+            job.notifyAll();
+        }
+        checkpoint(job);
+        nextWindow(job, 0);
+    }
+
+    private void retryOrFail(FQDownloadJob job, int attempt, String reason) {
+        if (job.getStatus() != FQDownloadJob.Status.RUNNING) {
+            release(job);
+            return;
+        }
+        if (attempt >= Math.max(0, downloadProperties.getMaxRetries())) {
+            log.warn("下载任务失败 - jobId: {}, bookId: {}, 检查点: {}, 原因: {}",
+                job.getJobId(), job.getBookId(), job.getNextIndex(), reason);
+            finish(job, FQDownloadJob.Status.FAILED, reason);
+            return;
+        }
+        synchronized (job) {
+            job.setError(reason);
+            job.setUpdatedAt(System.currentTimeMillis());
+        }
+        long delay = Math.min(downloadProperties.getRetryMaxDelayMs(),
+            downloadProperties.getRetryDelayMs() * (1L << Math.min(attempt, 10)));
+        log.debug("下载任务窗口重试 - jobId: {}, attempt: {}, delayMs: {}, 原因: {}", job.getJobId(), attempt + 1, delay, reason);
+        maintenanceExecutor.schedule(() -> nextWindow(job, attempt + 1), Math.max(0L, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void finish(FQDownloadJob job, FQDownloadJob.Status status, String error) {
+        synchronized (job) {
+            if (job.getStatus() == FQDownloadJob.Status.RUNNING) {
+                job.setStatus(status);
+                job.setError(error);
+                job.setUpdatedAt(System.currentTimeMillis());
+            }
+            job.notifyAll();
+        }
+        if (status == FQDownloadJob.Status.COMPLETED) {
+            log.info("下载任务完成 - jobId: {}, bookId: {}, 已缓存: {}, 缺失: {}",
+                job.getJobId(), job.getBookId(), job.getCachedChapters(), job.getMissingChapters());
+        }
+        checkpoint(job);
+        release(job);
+    }
+
+    private void release(FQDownloadJob job) {
+        synchronized (this) {
+            active.remove(job.getJobId());
+        }
+        startQueued();
+    }
+
+    /**
+     * 按目录顺序以 NDJSON 写出章节（每行一个 FQNovelResponse&lt;FQNovelChapterInfo&gt;），
+     * 尚未下载到的位置阻塞等待，任务结束后写完已完成部分即返回；断开后可用 from 从断点继续读取
+     *
+     * @param from 起始位置（目录下标，从 0 开始）
+     * @param format 章节内容返回格式
+     */
+    public void streamChapters(String jobId, int from, FQChapterFormat format, OutputStream out) throws IOException {
+        FQDownloadJob job = jobs.get(jobId);
+        if (job == null) {
+            return;
+        }
+        String bookId = job.getBookId();
+        int index = Math.max(0, from);
+        while (true) {
+            synchronized (job) {
+                while (!job.isFinished() && (job.getNextIndex() == null || job.getNextIndex() <= index)) {
+                    try {
+                        job.wait(1000L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (job.getNextIndex() == null || job.getNextIndex() <= index) {
+                    return;
+                }
+            }
+
+            DirectoryIndex directory = directoryCacheService.getCachedIndex(bookId);
+            if (directory == null) {
+                directory = awaitDirectory(bookId);
+                if (directory == null) {
+                    return;
+                }
+            }
+            if (index >= directory.size()) {
+                return;
+            }
+            String chapterId = directory.itemIdAt(index);
+            out.write(objectMapper.writeValueAsBytes(readChapter(bookId, chapterId, index, directory, format)));
+            out.write('\n');
+            out.flush();
+            index++;
+        }
+    }
+
+    /**
+     * 有限时间内等待目录；失败或超时返回 null（结束本次流，客户端可用 from 继续）
+     */
+    private DirectoryIndex awaitDirectory(String bookId) {
+        try {
+            return directoryCacheService.getIndex(bookId).get(DIRECTORY_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            log.warn("流式读取下载任务章节时目录获取失败 - bookId: {}, 原因: {}", bookId, unwrap(e).toString());
+            return null;
+        }
+    }
+
+    private FQNovelResponse<FQNovelChapterInfo> readChapter(String bookId, String chapterId, int index, DirectoryIndex directory,
+                                                            FQChapterFormat format) {
+        FQNovelChapterInfo cached = chapterCacheService.get(bookId, chapterId, directory.versionAt(index));
+        if (cached != null) {
+            return FQNovelResponse.success(format.render(cached));
+        }
+        FQNegativeCacheService.Entry negative = negativeCacheService.get(FQNegativeCacheService.Scope.CHAPTER,
+            FQChapterCacheService.cacheKey(bookId, chapterId));
+        FQNovelResponse<FQNovelChapterInfo> response;
+        if (negative != null) {
+            response = negative.toResponse();
+        } else {
+            // 下载后已被淘汰：走单章接口重新获取（共享预取窗口与缓存）
+            FQNovelRequest request = new FQNovelRequest();
+            request.setBookId(bookId);
+            request.setChapterId(chapterId);
+            request.setFormat(format.name());
+            response = chapterPrefetchService.getChapterContent(request).join();
+        }
+        if (response.getData() == null) {
+            // 失败行也带上章节定位信息
+            FQNovelChapterInfo placeholder = new FQNovelChapterInfo();
+            placeholder.setBookId(bookId);
+            placeholder.setChapterId(chapterId);
+            placeholder.setChapterIndex(index);
+            placeholder.setTitle(directory.titleAt(index));
+            response.setData(placeholder);
+        }
+        return response;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        int queued = 0;
+        for (FQDownloadJob job : jobs.values()) {
+            if (job.getStatus() == FQDownloadJob.Status.QUEUED) {
+                queued++;
+            }
+        }
+        synchronized (this) {
+            map.put("running", active.size());
+        }
+        map.put("queued", queued);
+        map.put("total", jobs.size());
+        map.put("persisted", jobDirectory != null);
+        return map;
+    }
+
+    private FQDownloadJob findByBookId(String bookId) {
+        for (FQDownloadJob job : jobs.values()) {
+            if (bookId.equals(job.getBookId())) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void cleanupExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || !isExpired(job, now)) {
+                return false;
+            }
+            deleteCheckpoint(job);
+            return true;
+        });
+    }
+
+    private boolean isExpired(FQDownloadJob job, long now) {
+        long retention = downloadProperties.getDownloadJobRetentionMs();
+        return retention > 0 && job.getUpdatedAt() != null && now - job.getUpdatedAt() > retention;
+    }
+
+    private FQDownloadJob snapshot(FQDownloadJob job) {
+        synchronized (job) {
+            return objectMapper.convertValue(job, FQDownloadJob.class);
+        }
+    }
+
+    /**
+     * 持久化检查点：先写临时文件再原子替换，中途崩溃不会留下半个文件
+     */
+    private void checkpoint(FQDownloadJob job) {
+        if (jobDirectory == null) {
+            return;
+        }
+        try {
+            byte[] data;
+            synchronized (job) {
+                data = objectMapper.writeValueAsBytes(job);
+            }
+            Path target = jobDirectory.resolve(job.getJobId() + JOB_FILE_SUFFIX);
+            Path tmp = jobDirectory.resolve(job.getJobId() + JOB_FILE_SUFFIX + ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("下载任务检查点写入失败 - jobId: {}", job.getJobId(), e);
+        }
+    }
+
+    private void deleteCheckpoint(FQDownloadJob job) {
+        if (jobDirectory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(jobDirectory.resolve(job.getJobId() + JOB_FILE_SUFFIX));
+        } catch (IOException e) {
+            log.debug("下载任务检查点删除失败 - jobId: {}", job.getJobId(), e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
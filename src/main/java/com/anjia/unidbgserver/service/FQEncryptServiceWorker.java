@@ -13,7 +13,10 @@ import org.springframework.stereotype.Service;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Slf4j
 @Service("fqEncryptWorker")
@@ -25,6 +28,18 @@ public class FQEncryptServiceWorker extends Worker {
     private WorkerPool pool;
     private FQEncryptService fqEncryptService;
     private long localResetEpoch = 0L;
+    private int parallelism = 1;
+
+    /**
+     * 正在等待或执行签名的调用数，以及签名耗时的 EWMA（微秒），供准入控制估算排队时间
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong avgSignMicros = new AtomicLong();
+
+    /**
+     * 同步模式的签名锁（可超时，便于放弃已取消请求的排队）
+     */
+    private final ReentrantLock signLock = new ReentrantLock();
 
     @Autowired
     public void init(UnidbgProperties unidbgProperties) {
@@ -47,7 +62,8 @@ public class FQEncryptServiceWorker extends Worker {
         if (this.unidbgProperties.isAsync()) {
             pool = WorkerPoolFactory.create(pool -> new FQEncryptServiceWorker(unidbgProperties.isDynarmic(),
                 unidbgProperties.isVerbose(), unidbgProperties.getApkPath(), unidbgProperties.getApkClasspath(), pool), Math.max(poolSize, 4));
-            log.info("FQ签名服务线程池大小为:{}", Math.max(poolSize, 4));
+            this.parallelism = Math.max(poolSize, 4);
+            log.info("FQ签名服务线程池大小为:{}", parallelism);
         } else {
             this.fqEncryptService = new FQEncryptService(unidbgProperties);
         }
@@ -77,29 +93,8 @@ public class FQEncryptServiceWorker extends Worker {
      * @param headers 请求头信息
      * @return 包含签名信息的CompletableFuture
      */
-    @SneakyThrows
     public CompletableFuture<Map<String, String>> generateSignatureHeaders(String url, String headers) {
-        FQEncryptServiceWorker worker;
-        Map<String, String> result;
-
-        if (this.unidbgProperties.isAsync()) {
-            // 异步模式使用工作池
-            while (true) {
-                if ((worker = pool.borrow(2, TimeUnit.SECONDS)) == null) {
-                    continue;
-                }
-                result = worker.doWork(url, headers);
-                pool.release(worker);
-                break;
-            }
-        } else {
-            // 同步模式直接使用当前实例
-            synchronized (this) {
-                result = this.doWork(url, headers);
-            }
-        }
-
-        return CompletableFuture.completedFuture(result);
+        return CompletableFuture.completedFuture(sign(worker -> worker.doWork(url, headers)));
     }
 
     /**
@@ -109,29 +104,94 @@ public class FQEncryptServiceWorker extends Worker {
      * @param headerMap 请求头的Map
      * @return 包含签名信息的CompletableFuture
      */
-    @SneakyThrows
     public CompletableFuture<Map<String, String>> generateSignatureHeaders(String url, Map<String, String> headerMap) {
-        FQEncryptServiceWorker worker;
-        Map<String, String> result;
+        return CompletableFuture.completedFuture(sign(worker -> worker.doWorkWithMap(url, headerMap)));
+    }
 
-        if (this.unidbgProperties.isAsync()) {
-            // 异步模式使用工作池
-            while (true) {
-                if ((worker = pool.borrow(2, TimeUnit.SECONDS)) == null) {
-                    continue;
+    /**
+     * 借用签名实例执行签名，并统计排队数与耗时。
+     * 排队期间会检查当前线程绑定的 {@link RequestDeadline}，调用方已放弃时不再占用签名实例。
+     * 耗时只统计拿到签名实例后完成的签名（不含排队），排队由 pendingCount 单独体现。
+     */
+    @SneakyThrows
+    private Map<String, String> sign(Function<FQEncryptServiceWorker, Map<String, String>> work) {
+        RequestDeadline deadline = RequestDeadline.current();
+        deadline.check("签名");
+        pendingCount.incrementAndGet();
+        // 等待签名实例的时间计入请求的本地等待
+        long waitStart = deadline.beginLocalWait();
+        boolean waiting = true;
+        try {
+            if (this.unidbgProperties.isAsync()) {
+                // 异步模式使用工作池
+                FQEncryptServiceWorker worker;
+                while (true) {
+                    if ((worker = pool.borrow(waitSliceMs(deadline), TimeUnit.MILLISECONDS)) == null) {
+                        deadline.check("签名排队");
+                        continue;
+                    }
+                    waiting = false;
+                    deadline.endLocalWait(waitStart);
+                    try {
+                        deadline.check("签名");
+                        return timed(work, worker);
+                    } finally {
+                        pool.release(worker);
+                    }
+                }
+            } else {
+                // 同步模式直接使用当前实例
+                while (!signLock.tryLock(waitSliceMs(deadline), TimeUnit.MILLISECONDS)) {
+                    deadline.check("签名排队");
+                }
+                waiting = false;
+                deadline.endLocalWait(waitStart);
+                try {
+                    deadline.check("签名");
+                    return timed(work, this);
+                } finally {
+                    signLock.unlock();
                 }
-                result = worker.doWorkWithMap(url, headerMap);
-                pool.release(worker);
-                break;
             }
-        } else {
-            // 同步模式直接使用当前实例
-            synchronized (this) {
-                result = this.doWorkWithMap(url, headerMap);
+        } finally {
+            if (waiting) {
+                deadline.endLocalWait(waitStart);
             }
+            pendingCount.decrementAndGet();
         }
+    }
 
-        return CompletableFuture.completedFuture(result);
+    private Map<String, String> timed(Function<FQEncryptServiceWorker, Map<String, String>> work, FQEncryptServiceWorker worker) {
+        long startNanos = System.nanoTime();
+        Map<String, String> result = work.apply(worker);
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        avgSignMicros.getAndUpdate(prev -> prev == 0 ? micros : prev + ((micros - prev) >> 3));
+        return result;
+    }
+
+    private static long waitSliceMs(RequestDeadline deadline) {
+        return Math.max(1L, Math.min(2000L, deadline.remainingMillis()));
+    }
+
+    /**
+     * 当前等待或执行中的签名调用数
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 签名平均耗时（ms，EWMA）
+     */
+    public long getAvgSignMs() {
+        return avgSignMicros.get() / 1000L;
+    }
+
+    /**
+     * 签名并行度（异步模式为工作池大小，同步模式为 1）
+     */
+    public int getParallelism() {
+        return parallelism;
     }
 
     /**
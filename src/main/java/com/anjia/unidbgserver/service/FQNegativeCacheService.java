@@ -0,0 +1,153 @@
+package com.anjia.unidbgserver.service;
+
+import com.anjia.unidbgserver.config.FQDownloadProperties;
+import com.anjia.unidbgserver.dto.FQNovelResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负缓存：记录上游明确失败的书籍/章节/查询，短时间内同样的请求直接失败，
+ * 不再消耗限流配额和签名时间。
+ * 只记录上游给出错误码或明确缺失的情况；网络异常、签名失败、风控等可重试错误不记录。
+ */
+@Slf4j
+@Service
+public class FQNegativeCacheService {
+
+    public enum Scope {
+        BOOK,
+        CHAPTER,
+        QUERY
+    }
+
+    public enum Reason {
+        /**
+         * 批量接口未返回（章节不存在/未解锁）
+         */
+        NOT_FOUND,
+        /**
+         * 上游返回非 0 错误码
+         */
+        UPSTREAM_ERROR
+    }
+
+    @Resource
+    private FQDownloadProperties downloadProperties;
+
+    @Resource(name = "fqCacheScheduler")
+    private Scheduler cacheScheduler;
+
+    private Cache<String, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, downloadProperties.getNegativeCacheMaxEntries()))
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry value, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(value.ttlMs);
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry value, long currentTime, long currentDuration) {
+                    return TimeUnit.MILLISECONDS.toNanos(value.ttlMs);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .scheduler(cacheScheduler)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * 查询负缓存；未命中返回 null
+     */
+    public Entry get(Scope scope, String key) {
+        if (key == null || !isEnabled()) {
+            return null;
+        }
+        return cache.getIfPresent(cacheKey(scope, key));
+    }
+
+    public void record(Scope scope, String key, Reason reason, Integer code, String message) {
+        if (key == null || !isEnabled()) {
+            return;
+        }
+        long ttlMs = reason == Reason.NOT_FOUND
+            ? downloadProperties.getNegativeCacheNotFoundTtlMs()
+            : downloadProperties.getNegativeCacheTtlMs();
+        if (ttlMs <= 0) {
+            return;
+        }
+        cache.put(cacheKey(scope, key), new Entry(reason, code, message, ttlMs));
+        if (log.isDebugEnabled()) {
+            log.debug("记录负缓存 - scope: {}, key: {}, reason: {}, code: {}", scope, key, reason, code);
+        }
+    }
+
+    public void invalidate(Scope scope, String key) {
+        if (key != null) {
+            cache.invalidate(cacheKey(scope, key));
+        }
+    }
+
+    private boolean isEnabled() {
+        return downloadProperties.getNegativeCacheTtlMs() > 0;
+    }
+
+    private static String cacheKey(Scope scope, String key) {
+        return scope.name() + ":" + key;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", cache.estimatedSize());
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        return map;
+    }
+
+    /**
+     * 负缓存记录：失败原因 + 上游错误码/消息（用于原样返回）
+     */
+    public static final class Entry {
+        private final Reason reason;
+        private final Integer code;
+        private final String message;
+        private final long ttlMs;
+
+        Entry(Reason reason, Integer code, String message, long ttlMs) {
+            this.reason = reason;
+            this.code = code;
+            this.message = message;
+            this.ttlMs = ttlMs;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        public <T> FQNovelResponse<T> toResponse() {
+            return FQNovelResponse.error(code != null ? code : -1, message);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.anjia.unidbgserver.config.FQApiProperties;
 import com.anjia.unidbgserver.config.FQDownloadProperties;
 import com.anjia.unidbgserver.constants.FQConstants;
 import com.anjia.unidbgserver.dto.*;
+import com.anjia.unidbgserver.utils.ChapterHtmlUtils;
 import com.anjia.unidbgserver.utils.FQApiUtils;
 import com.anjia.unidbgserver.utils.GzipUtils;
 import com.anjia.unidbgserver.utils.ProcessLifecycle;
@@ -15,6 +16,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.Resource;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,8 +26,6 @@ import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * FQNovel 小说内容获取服务
@@ -49,6 +50,9 @@ public class FQNovelService {
     @Resource
     private FQSearchService fqSearchService;
 
+    @Resource
+    private FQDirectoryCacheService directoryCacheService;
+
     @Resource
     private UpstreamRateLimiter upstreamRateLimiter;
 
@@ -67,8 +71,14 @@ public class FQNovelService {
     @Resource
     private ObjectMapper objectMapper;
 
-    @Resource(name = "applicationTaskExecutor")
-    private Executor taskExecutor;
+    @Resource(name = "fqInteractiveExecutor")
+    private Executor interactiveExecutor;
+
+    @Resource(name = "fqBulkExecutor")
+    private Executor bulkExecutor;
+
+    @Resource(name = "fqDecodeExecutor")
+    private Executor decodeExecutor;
 
     /**
      * 获取默认FQ变量（延迟初始化）
@@ -87,7 +97,37 @@ public class FQNovelService {
      * @return 批量内容响应
      */
     public CompletableFuture<FQNovelResponse<FqIBatchFullResponse>> batchFull(String itemIds, String bookId, boolean download) {
-        return CompletableFuture.supplyAsync(() -> {
+        // 在线阅读走交互式线程池，下载走批量线程池，互不挤占
+        return batchFull(itemIds, bookId, download, download ? bulkExecutor : interactiveExecutor);
+    }
+
+    /**
+     * 批量获取章节内容，并指定执行上游请求的线程池（按负载类型隔离）
+     *
+     * @param itemIds 章节ID列表，逗号分隔
+     * @param bookId 书籍ID
+     * @param download 是否下载模式 (false=在线阅读, true=下载)
+     * @param executor 执行上游请求的线程池
+     * @return 批量内容响应
+     */
+    public CompletableFuture<FQNovelResponse<FqIBatchFullResponse>> batchFull(String itemIds, String bookId, boolean download, Executor executor) {
+        return batchFull(itemIds, bookId, download, executor, RequestDeadline.current());
+    }
+
+    /**
+     * 批量获取章节内容，并指定线程池与请求截止时间
+     * 调用方已断开或超时后，不再签名、等待限流或请求上游
+     *
+     * @param itemIds 章节ID列表，逗号分隔
+     * @param bookId 书籍ID
+     * @param download 是否下载模式 (false=在线阅读, true=下载)
+     * @param executor 执行上游请求的线程池
+     * @param deadline 请求截止时间（后台/共享任务传 {@link RequestDeadline#none()}）
+     * @return 批量内容响应
+     */
+    public CompletableFuture<FQNovelResponse<FqIBatchFullResponse>> batchFull(String itemIds, String bookId, boolean download,
+                                                                             Executor executor, RequestDeadline deadline) {
+        return CompletableFuture.supplyAsync(RequestDeadline.propagate(deadline, () -> {
             if (ProcessLifecycle.isShuttingDown()) {
                 return FQNovelResponse.error("服务正在退出中，请稍后重试");
             }
@@ -97,6 +137,9 @@ public class FQNovelService {
             long maxDelayMs = Math.max(baseDelayMs, downloadProperties.getRetryMaxDelayMs());
 
             for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                if (deadline.isExpired()) {
+                    return FQNovelResponse.error("批量获取章节内容已放弃: 请求已取消或超时");
+                }
                 try {
                     FqVariable var = getDefaultFqVariable();
 
@@ -164,6 +207,12 @@ public class FQNovelService {
                     autoRestartService.recordSuccess();
                     return FQNovelResponse.success(batchResponse);
 
+                } catch (DeadlineExceededException e) {
+                    // 调用方已放弃：不重试、不轮换设备、不计入失败
+                    if (log.isDebugEnabled()) {
+                        log.debug("批量获取章节内容已放弃 - itemIds: {}, {}", itemIds, e.getMessage());
+                    }
+                    return FQNovelResponse.error("批量获取章节内容已放弃: " + e.getMessage());
                 } catch (Exception e) {
                     String message = e.getMessage() != null ? e.getMessage() : "";
                     boolean illegal = message.contains("ILLEGAL_ACCESS");
@@ -220,6 +269,9 @@ public class FQNovelService {
                     long delay = baseDelayMs <= 0 ? 0 : baseDelayMs * (1L << Math.min(10, attempt - 1));
                     delay = Math.min(delay, maxDelayMs);
                     delay += ThreadLocalRandom.current().nextLong(0, 250);
+                    if (delay >= deadline.remainingMillis()) {
+                        return FQNovelResponse.error("批量获取章节内容已放弃: 剩余时间不足以重试");
+                    }
                     try {
                         Thread.sleep(delay);
                     } catch (InterruptedException ie) {
@@ -229,7 +281,7 @@ public class FQNovelService {
                 }
             }
             return FQNovelResponse.error("批量获取章节内容失败: 超过最大重试次数");
-        }, taskExecutor);
+        }), executor);
     }
 
     private static boolean isIllegalAccess(long code, String message, String rawBody) {
@@ -248,95 +300,90 @@ public class FQNovelService {
      * @return 书籍信息
      */
     public CompletableFuture<FQNovelResponse<FQNovelBookInfo>> getBookInfo(String bookId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 验证bookId参数
-                if (bookId == null || bookId.trim().isEmpty()) {
-                    return FQNovelResponse.error("书籍ID不能为空");
-                }
-
-                // 构建目录请求
-                FQDirectoryRequest directoryRequest = new FQDirectoryRequest();
-                directoryRequest.setBookId(bookId);
-                directoryRequest.setBookType(0);
-                directoryRequest.setNeedVersion(true);
+        // 验证bookId参数
+        if (bookId == null || bookId.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(FQNovelResponse.error("书籍ID不能为空"));
+        }
 
-                // 调用目录接口获取书籍信息
-                FQNovelResponse<FQDirectoryResponse> directoryResponse = fqSearchService.getBookDirectory(directoryRequest).get();
+        // 书籍信息来自目录接口；目录走缓存（stale-while-revalidate），打开书籍时无需等待签名和上游
+        return directoryCacheService.getDirectory(bookId)
+            .thenApply(directoryResponse -> buildBookInfoResponse(bookId, directoryResponse))
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("获取书籍信息失败 - bookId: {}", bookId, cause);
+                return FQNovelResponse.error("获取书籍信息失败: " + cause.getMessage());
+            });
+    }
 
-                if (directoryResponse.getCode() != 0 || directoryResponse.getData() == null) {
-                    String msg = directoryResponse.getMessage();
-                    if (msg == null || msg.trim().isEmpty() || "success".equalsIgnoreCase(msg.trim())) {
-                        msg = "目录接口未返回有效数据";
-                    }
-                    return FQNovelResponse.error("获取书籍目录失败: " + msg);
-                }
+    private FQNovelResponse<FQNovelBookInfo> buildBookInfoResponse(String bookId, FQNovelResponse<FQDirectoryResponse> directoryResponse) {
+        if (directoryResponse.getCode() != 0 || directoryResponse.getData() == null) {
+            String msg = directoryResponse.getMessage();
+            if (msg == null || msg.trim().isEmpty() || "success".equalsIgnoreCase(msg.trim())) {
+                msg = "目录接口未返回有效数据";
+            }
+            return FQNovelResponse.error("获取书籍目录失败: " + msg);
+        }
 
-                FQDirectoryResponse directoryData = directoryResponse.getData();
-                FQNovelBookInfoResp bookInfoResp = directoryData.getBookInfo();
+        FQDirectoryResponse directoryData = directoryResponse.getData();
+        FQNovelBookInfoResp bookInfoResp = directoryData.getBookInfo();
 
-                if (bookInfoResp == null) {
-                    return FQNovelResponse.error("书籍信息不存在");
-                }
+        if (bookInfoResp == null) {
+            return FQNovelResponse.error("书籍信息不存在");
+        }
 
-                // 从FQNovelBookInfoResp转换为FQNovelBookInfo（完整映射）
-                FQNovelBookInfo bookInfo = mapBookInfoRespToBookInfo(bookInfoResp, bookId);
+        // 从FQNovelBookInfoResp转换为FQNovelBookInfo（完整映射）
+        FQNovelBookInfo bookInfo = mapBookInfoRespToBookInfo(bookInfoResp, bookId);
 
-                // 章节总数 - 优先使用目录接口的serial_count字段获取真实章节数
-                log.debug("调试信息 - bookId: {}, directoryData.serialCount: {}, bookInfoResp.serialCount: {}, directoryData.catalogData.size: {}", 
-                    bookId, directoryData.getSerialCount(), bookInfoResp.getSerialCount(),
-                    directoryData.getCatalogData() != null ? directoryData.getCatalogData().size() : "null");
-                
-                // 优先从bookInfo中获取serialCount
-                if (bookInfoResp.getSerialCount() != null) {
-                    try {
-                        bookInfo.setTotalChapters(Integer.parseInt(bookInfoResp.getSerialCount()));
-                        log.debug("使用bookInfo.serialCount获取章节总数 - bookId: {}, 章节数: {}", bookId, bookInfoResp.getSerialCount());
-                    } catch (NumberFormatException e) {
-                        log.error("解析bookInfo.serialCount失败 - bookId: {}, serialCount: {}", bookId, bookInfoResp.getSerialCount());
-                        // 如果解析失败，尝试从目录数据获取
-                        List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
-                        if (catalogData != null && !catalogData.isEmpty()) {
-                            bookInfo.setTotalChapters(catalogData.size());
-                            log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
-                        } else {
-                            bookInfo.setTotalChapters(0);
-                        }
-                    }
-                } else if (directoryData.getSerialCount() != null) {
-                    try {
-                        bookInfo.setTotalChapters(Integer.parseInt(directoryData.getSerialCount()));
-                        log.info("使用目录接口serial_count获取章节总数 - bookId: {}, 章节数: {}", bookId, directoryData.getSerialCount());
-                    } catch (NumberFormatException e) {
-                        log.error("解析目录接口serial_count失败 - bookId: {}, serialCount: {}", bookId, directoryData.getSerialCount());
-                        // 如果解析失败，尝试从目录数据获取
-                        List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
-                        if (catalogData != null && !catalogData.isEmpty()) {
-                            bookInfo.setTotalChapters(catalogData.size());
-                            log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
-                        } else {
-                            bookInfo.setTotalChapters(0);
-                        }
-                    }
+        // 章节总数 - 优先使用目录接口的serial_count字段获取真实章节数
+        log.debug("调试信息 - bookId: {}, directoryData.serialCount: {}, bookInfoResp.serialCount: {}, directoryData.catalogData.size: {}", 
+            bookId, directoryData.getSerialCount(), bookInfoResp.getSerialCount(),
+            directoryData.getCatalogData() != null ? directoryData.getCatalogData().size() : "null");
+        
+        // 优先从bookInfo中获取serialCount
+        if (bookInfoResp.getSerialCount() != null) {
+            try {
+                bookInfo.setTotalChapters(Integer.parseInt(bookInfoResp.getSerialCount()));
+                log.debug("使用bookInfo.serialCount获取章节总数 - bookId: {}, 章节数: {}", bookId, bookInfoResp.getSerialCount());
+            } catch (NumberFormatException e) {
+                log.error("解析bookInfo.serialCount失败 - bookId: {}, serialCount: {}", bookId, bookInfoResp.getSerialCount());
+                // 如果解析失败，尝试从目录数据获取
+                List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
+                if (catalogData != null && !catalogData.isEmpty()) {
+                    bookInfo.setTotalChapters(catalogData.size());
+                    log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
                 } else {
-                    // 如果两个serial_count都为空，尝试从目录数据获取
-                    List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
-                    if (catalogData != null && !catalogData.isEmpty()) {
-                        bookInfo.setTotalChapters(catalogData.size());
-                        log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
-                    } else {
-                        bookInfo.setTotalChapters(0);
-                        log.warn("无法获取章节总数 - bookId: {}", bookId);
-                    }
+                    bookInfo.setTotalChapters(0);
                 }
-
-                return FQNovelResponse.success(bookInfo);
-
-            } catch (Exception e) {
-                log.error("获取书籍信息失败 - bookId: {}", bookId, e);
-                return FQNovelResponse.error("获取书籍信息失败: " + e.getMessage());
             }
-        }, taskExecutor);
+        } else if (directoryData.getSerialCount() != null) {
+            try {
+                bookInfo.setTotalChapters(Integer.parseInt(directoryData.getSerialCount()));
+                log.info("使用目录接口serial_count获取章节总数 - bookId: {}, 章节数: {}", bookId, directoryData.getSerialCount());
+            } catch (NumberFormatException e) {
+                log.error("解析目录接口serial_count失败 - bookId: {}, serialCount: {}", bookId, directoryData.getSerialCount());
+                // 如果解析失败，尝试从目录数据获取
+                List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
+                if (catalogData != null && !catalogData.isEmpty()) {
+                    bookInfo.setTotalChapters(catalogData.size());
+                    log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
+                } else {
+                    bookInfo.setTotalChapters(0);
+                }
+            }
+        } else {
+            // 如果两个serial_count都为空，尝试从目录数据获取
+            List<FQDirectoryResponse.CatalogItem> catalogData = directoryData.getCatalogData();
+            if (catalogData != null && !catalogData.isEmpty()) {
+                bookInfo.setTotalChapters(catalogData.size());
+                log.info("从目录数据获取章节总数 - bookId: {}, 章节数: {}", bookId, catalogData.size());
+            } else {
+                bookInfo.setTotalChapters(0);
+                log.warn("无法获取章节总数 - bookId: {}", bookId);
+            }
+        }
+
+        return FQNovelResponse.success(bookInfo);
     }
 
     /**
@@ -348,26 +395,29 @@ public class FQNovelService {
      * @return 解密后的章节内容列表
      */
     public CompletableFuture<FQNovelResponse<List<Map.Entry<String, String>>>> getDecryptedContents(String itemIds, String bookId, boolean download) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 先获取批量内容
-                FQNovelResponse<FqIBatchFullResponse> batchResponse = batchFull(itemIds, bookId, download).get();
-
+        // 先获取批量内容，完成后在同一阶段内解密
+        return batchFull(itemIds, bookId, download)
+            .thenApply(batchResponse -> {
                 if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
-                    return FQNovelResponse.error("获取批量内容失败: " + batchResponse.getMessage());
+                    return FQNovelResponse.<List<Map.Entry<String, String>>>error("获取批量内容失败: " + batchResponse.getMessage());
                 }
 
-                // 解密内容
-                List<Map.Entry<String, String>> decryptedContents =
-                    batchResponse.getData().getDecryptContents(registerKeyService);
-
-                return FQNovelResponse.success(decryptedContents);
-
-            } catch (Exception e) {
-                log.error("获取解密章节内容失败 - itemIds: {}", itemIds, e);
-                return FQNovelResponse.error("获取解密章节内容失败: " + e.getMessage());
-            }
-        }, taskExecutor);
+                try {
+                    // 解密内容
+                    List<Map.Entry<String, String>> decryptedContents =
+                        batchResponse.getData().getDecryptContents(registerKeyService, decodeExecutor);
+                    return FQNovelResponse.success(decryptedContents);
+                } catch (Exception e) {
+                    log.error("获取解密章节内容失败 - itemIds: {}", itemIds, e);
+                    return FQNovelResponse.<List<Map.Entry<String, String>>>error("获取解密章节内容失败: " + e.getMessage());
+                }
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("获取解密章节内容失败 - itemIds: {}", itemIds, cause);
+                return FQNovelResponse.error("获取解密章节内容失败: " + cause.getMessage());
+            });
     }
 
     /**
@@ -377,312 +427,479 @@ public class FQNovelService {
      * @return 章节内容
      */
     public CompletableFuture<FQNovelResponse<FQNovelChapterInfo>> getChapterContent(FQNovelRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (request.getBookId() == null || request.getChapterId() == null) {
-                    return FQNovelResponse.error("书籍ID和章节ID不能为空");
-                }
+        if (request.getBookId() == null || request.getChapterId() == null) {
+            return CompletableFuture.completedFuture(FQNovelResponse.error("书籍ID和章节ID不能为空"));
+        }
+        FQChapterFormat format = FQChapterFormat.parse(request.getFormat());
+        if (format == null) {
+            return CompletableFuture.completedFuture(FQNovelResponse.error(FQChapterFormat.INVALID_MESSAGE));
+        }
 
-                // 使用batch_full API获取完整响应数据
-                String itemIds = request.getChapterId();
-                FQNovelResponse<FqIBatchFullResponse> batchResponse = batchFull(itemIds, request.getBookId(), false).get();
+        // 使用batch_full API获取完整响应数据
+        return batchFull(request.getChapterId(), request.getBookId(), false)
+            .thenApply(batchResponse -> buildChapterContentResponse(request, format, batchResponse))
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("获取章节内容失败 - bookId: {}, chapterId: {}",
+                    request.getBookId(), request.getChapterId(), cause);
+                return FQNovelResponse.error("获取章节内容失败: " + cause.getMessage());
+            });
+    }
 
-                if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
-                    return FQNovelResponse.error("获取章节内容失败: " + batchResponse.getMessage());
-                }
+    private FQNovelResponse<FQNovelChapterInfo> buildChapterContentResponse(FQNovelRequest request, FQChapterFormat format,
+                                                                            FQNovelResponse<FqIBatchFullResponse> batchResponse) {
+        if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
+            return FQNovelResponse.error("获取章节内容失败: " + batchResponse.getMessage());
+        }
 
-                FqIBatchFullResponse batchFullResponse = batchResponse.getData();
-                Map<String, ItemContent> dataMap = batchFullResponse.getData();
+        FqIBatchFullResponse batchFullResponse = batchResponse.getData();
+        Map<String, ItemContent> dataMap = batchFullResponse.getData();
 
-                if (dataMap == null || dataMap.isEmpty()) {
-                    return FQNovelResponse.error("未找到章节数据");
-                }
+        if (dataMap == null || dataMap.isEmpty()) {
+            return FQNovelResponse.error("未找到章节数据");
+        }
 
-                // 获取第一个章节的内容
-                String chapterId = request.getChapterId();
-                ItemContent itemContent = dataMap.get(chapterId);
+        // 获取第一个章节的内容
+        String chapterId = request.getChapterId();
+        ItemContent itemContent = dataMap.get(chapterId);
 
-                if (itemContent == null) {
-                    // 如果使用chapterId没找到，尝试使用第一个可用的key
-                    itemContent = dataMap.values().iterator().next();
-                    chapterId = dataMap.keySet().iterator().next();
-                }
+        if (itemContent == null) {
+            // 如果使用chapterId没找到，尝试使用第一个可用的key
+            itemContent = dataMap.values().iterator().next();
+            chapterId = dataMap.keySet().iterator().next();
+        }
 
-                if (itemContent == null) {
-                    return FQNovelResponse.error("未找到章节内容");
-                }
+        if (itemContent == null) {
+            return FQNovelResponse.error("未找到章节内容");
+        }
 
-                // 解密章节内容
-                String decryptedContent = "";
-                try {
-                    Long contentKeyver = itemContent.getKeyVersion();
-                    String key = registerKeyService.getDecryptionKey(contentKeyver);
-                    decryptedContent = FqCrypto.decryptAndDecompressContent(itemContent.getContent(), key);
-                } catch (Exception e) {
-                    log.error("解密章节内容失败 - chapterId: {}", chapterId, e);
-                    return FQNovelResponse.error("解密章节内容失败: " + e.getMessage());
-                }
+        // 解密章节内容
+        String decryptedContent = "";
+        try {
+            Long contentKeyver = itemContent.getKeyVersion();
+            SecretKeySpec key = registerKeyService.getDecryptionKeySpec(contentKeyver);
+            decryptedContent = FqCrypto.decryptAndDecompressContent(itemContent.getContent(), key);
+        } catch (Exception e) {
+            log.error("解密章节内容失败 - chapterId: {}", chapterId, e);
+            return FQNovelResponse.error("解密章节内容失败: " + e.getMessage());
+        }
 
-                // 从HTML中提取纯文本内容
-                String txtContent = extractTextFromHtml(decryptedContent);
-
-                // 构建章节信息对象
-                FQNovelChapterInfo chapterInfo = new FQNovelChapterInfo();
-                chapterInfo.setChapterId(chapterId);
-                chapterInfo.setBookId(request.getBookId());
-                chapterInfo.setRawContent(decryptedContent);
-                chapterInfo.setTxtContent(txtContent);
-
-                // 从ItemContent中提取标题
-                String title = itemContent.getTitle();
-                if (title == null || title.trim().isEmpty()) {
-                    // 如果title为空，尝试从HTML中提取标题
-                    Pattern titlePattern = Pattern.compile("<h1[^>]*>.*?<blk[^>]*>([^<]*)</blk>.*?</h1>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-                    Matcher titleMatcher = titlePattern.matcher(decryptedContent);
-                    if (titleMatcher.find()) {
-                        title = titleMatcher.group(1).trim();
-                    } else {
-                        title = "章节标题";
-                    }
+        // 从HTML中提取纯文本内容和标题
+        ChapterHtmlUtils.ChapterText parsed = ChapterHtmlUtils.parse(decryptedContent);
+
+        // 构建章节信息对象（按请求的格式只返回需要的内容）
+        FQNovelChapterInfo chapterInfo = new FQNovelChapterInfo();
+        chapterInfo.setChapterId(chapterId);
+        chapterInfo.setBookId(request.getBookId());
+        if (format.includesRaw()) {
+            chapterInfo.setRawContent(decryptedContent);
+        }
+        if (format.includesText()) {
+            chapterInfo.setTxtContent(parsed.getText());
+        }
+
+        // 从ItemContent中提取标题
+        String title = itemContent.getTitle();
+        if (title == null || title.trim().isEmpty()) {
+            // 如果title为空，使用HTML中的标题
+            title = parsed.getTitle() != null ? parsed.getTitle() : "章节标题";
+        }
+        chapterInfo.setTitle(title);
+
+        // 从novelData中提取作者信息（如果可用）
+        FQNovelData novelData = itemContent.getNovelData();
+        chapterInfo.setAuthorName(novelData != null ? novelData.getAuthor() : "未知作者");
+        // 设置其他字段
+        chapterInfo.setWordCount(parsed.getWordCount());
+        chapterInfo.setUpdateTime(System.currentTimeMillis());
+
+        return FQNovelResponse.success(chapterInfo);
+    }
+
+    /**
+     * 批量获取章节内容 (新功能)
+     *
+     * @param request 批量章节请求
+     * @return 批量章节响应
+     */
+    public CompletableFuture<FQNovelResponse<FQBatchChapterResponse>> getBatchChapterContent(FQBatchChapterRequest request) {
+        BatchTarget target = resolveBatchTarget(request);
+        if (target.error != null) {
+            return CompletableFuture.completedFuture(FQNovelResponse.error(target.error));
+        }
+
+        // 后续阶段可能在线程池线程上执行，这里显式捕获请求截止时间
+        RequestDeadline deadline = RequestDeadline.current();
+        return target.itemIds
+            .thenCompose(itemIds -> {
+                if (itemIds.isEmpty()) {
+                    return CompletableFuture.completedFuture(
+                        FQNovelResponse.<FQBatchChapterResponse>error("无法获取章节对应的itemIds，请检查章节范围是否有效"));
                 }
-                chapterInfo.setTitle(title);
 
-                // 从novelData中提取作者信息（如果可用）
-                FQNovelData novelData = itemContent.getNovelData();
-                chapterInfo.setAuthorName(novelData != null ? novelData.getAuthor() : "未知作者");
-                // 设置其他字段
-                chapterInfo.setWordCount(txtContent.length());
-                chapterInfo.setUpdateTime(System.currentTimeMillis());
+                // 调用批量获取API
+                String itemIdsStr = String.join(",", itemIds);
+                return batchFull(itemIdsStr, request.getBookId(), true, bulkExecutor, deadline)
+                    .thenApply(batchResponse -> buildBatchChapterResponse(request, target, itemIds, batchResponse));
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("批量获取章节内容失败 - bookId: {}, range: {}",
+                    request.getBookId(), request.getChapterRange(), cause);
+                return FQNovelResponse.error("批量获取章节内容失败: " + cause.getMessage());
+            });
+    }
+
+    /**
+     * 流式写出的目标（NDJSON / SSE），由控制器适配到具体的响应流
+     */
+    public interface BatchChapterSink {
 
-                return FQNovelResponse.success(chapterInfo);
+        /**
+         * 写出一条事件；客户端断开时抛出 IOException，剩余章节不再处理
+         */
+        void send(FQBatchChapterEvent event) throws IOException;
 
-            } catch (Exception e) {
-                log.error("获取章节内容失败 - bookId: {}, chapterId: {}",
-                    request.getBookId(), request.getChapterId(), e);
-                return FQNovelResponse.error("获取章节内容失败: " + e.getMessage());
-            }
-        }, taskExecutor);
+        void complete();
     }
 
     /**
-     * 从HTML内容中提取纯文本
-     * 主要提取 <blk> 标签中的文本内容，按照 e_order 排序
+     * 批量获取章节内容（流式）：与 {@link #getBatchChapterContent} 参数、章节键一致，
+     * 但每个章节解密后立即写出，不在内存中汇总整批结果
      *
-     * @param htmlContent HTML内容
-     * @return 提取的纯文本内容
+     * @param request 批量章节请求
+     * @param sink 事件写出目标
+     * @return 全部事件写出（或客户端断开）后完成
      */
-    private String extractTextFromHtml(String htmlContent) {
-        if (htmlContent == null || htmlContent.trim().isEmpty()) {
-            return "";
+    public CompletableFuture<Void> streamBatchChapterContent(FQBatchChapterRequest request, BatchChapterSink sink) {
+        BatchTarget target = resolveBatchTarget(request);
+        if (target.error != null) {
+            sendErrorAndEnd(sink, target.error, 0);
+            return CompletableFuture.completedFuture(null);
         }
 
-        StringBuilder textBuilder = new StringBuilder();
+        RequestDeadline deadline = RequestDeadline.current();
+        int totalRequested = target.chapterIds.size();
+        return target.itemIds
+            .thenCompose(itemIds -> {
+                if (itemIds.isEmpty()) {
+                    sendErrorAndEnd(sink, "无法获取章节对应的itemIds，请检查章节范围是否有效", totalRequested);
+                    return CompletableFuture.completedFuture(null);
+                }
+                return batchFull(String.join(",", itemIds), request.getBookId(), true, bulkExecutor, deadline)
+                    .thenAccept(batchResponse -> writeBatchChapterEvents(request, target, itemIds, batchResponse, sink));
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                log.error("流式批量获取章节内容失败 - bookId: {}, range: {}",
+                    request.getBookId(), request.getChapterRange(), cause);
+                sendErrorAndEnd(sink, "批量获取章节内容失败: " + cause.getMessage(), totalRequested);
+                return null;
+            });
+    }
+
+    private void writeBatchChapterEvents(FQBatchChapterRequest request, BatchTarget target, List<String> itemIds,
+                                         FQNovelResponse<FqIBatchFullResponse> batchResponse, BatchChapterSink sink) {
+        List<String> chapterIds = target.chapterIds;
+        if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
+            sendErrorAndEnd(sink, "获取批量章节内容失败: " + batchResponse.getMessage(), chapterIds.size());
+            return;
+        }
+        Map<String, ItemContent> dataMap = batchResponse.getData().getData();
+        if (dataMap == null) {
+            dataMap = new HashMap<>();
+        }
 
+        boolean positionMode = isChapterPositions(chapterIds);
+        int successCount = 0;
+        List<CompletableFuture<FQBatchChapterInfo>> decoded = null;
         try {
-            // 使用正则表达式提取 <blk> 标签中的文本内容
-            Pattern blkPattern = Pattern.compile("<blk[^>]*>([^<]*)</blk>", Pattern.CASE_INSENSITIVE);
-            Matcher matcher = blkPattern.matcher(htmlContent);
-
-            while (matcher.find()) {
-                String text = matcher.group(1);
-                if (text != null && !text.trim().isEmpty()) {
-                    textBuilder.append(text.trim()).append("\n");
+            FQNovelData novelData = null;
+            for (String itemId : itemIds) {
+                ItemContent itemContent = dataMap.get(itemId);
+                if (itemContent != null && itemContent.getNovelData() != null) {
+                    novelData = itemContent.getNovelData();
+                    break;
                 }
             }
+            if (novelData != null) {
+                sink.send(FQBatchChapterEvent.book(buildBatchBookInfo(request.getBookId(), novelData), chapterIds.size()));
+            }
 
-            // 如果没有找到 <blk> 标签，尝试提取所有文本内容
-            if (textBuilder.length() == 0) {
-                // 简单的HTML标签移除，保留文本内容
-                String text = htmlContent.replaceAll("<[^>]+>", "").trim();
-                if (!text.isEmpty()) {
-                    textBuilder.append(text);
+            // 各章节在解码线程池上并行解码，按请求顺序写出：先解完的章节等待前面的章节
+            decoded = decodeBatchChapters(itemIds, dataMap, target.format);
+            for (int itemIndex = 0; itemIndex < itemIds.size(); itemIndex++) {
+                String itemId = itemIds.get(itemIndex);
+                String chapterKey = batchChapterKey(positionMode, chapterIds, itemIndex, itemId);
+                CompletableFuture<FQBatchChapterInfo> future = decoded.get(itemIndex);
+                if (future == null) {
+                    sink.send(FQBatchChapterEvent.error(chapterKey, itemId, "未找到章节内容"));
+                    continue;
+                }
+                FQBatchChapterInfo chapterInfo = future.join();
+                // 已写出的章节不再被引用，峰值内存约为尚未写出的已解码章节
+                decoded.set(itemIndex, null);
+                if (chapterInfo == null) {
+                    sink.send(FQBatchChapterEvent.error(chapterKey, itemId, "解密章节内容失败"));
+                    continue;
                 }
+                sink.send(FQBatchChapterEvent.chapter(chapterKey, itemId, chapterInfo));
+                successCount++;
             }
-
-        } catch (Exception e) {
-            log.warn("HTML文本提取失败，返回原始内容", e);
-            // 如果解析失败，返回去除HTML标签的简单文本
-            return htmlContent.replaceAll("<[^>]+>", "").trim();
+            sink.send(FQBatchChapterEvent.end(chapterIds.size(), successCount));
+            sink.complete();
+        } catch (IOException e) {
+            // 客户端已断开：取消尚未开始解密的章节（已写出的位置为 null，正在解密的会跑完后丢弃）
+            if (decoded != null) {
+                for (CompletableFuture<FQBatchChapterInfo> future : decoded) {
+                    if (future != null) {
+                        future.cancel(false);
+                    }
+                }
+            }
+            log.debug("流式批量获取章节时客户端断开 - bookId: {}, 已写出: {}", request.getBookId(), successCount);
         }
+    }
 
-        return textBuilder.toString().trim();
+    private void sendErrorAndEnd(BatchChapterSink sink, String message, int totalRequested) {
+        try {
+            sink.send(FQBatchChapterEvent.error(null, null, message));
+            sink.send(FQBatchChapterEvent.end(totalRequested, 0));
+            sink.complete();
+        } catch (IOException e) {
+            log.debug("流式批量获取章节时客户端断开", e);
+        }
     }
 
     /**
-     * 批量获取章节内容 (新功能)
-     *
-     * @param request 批量章节请求
-     * @return 批量章节响应
+     * 批量请求的目标章节：请求的章节键（位置或 itemId）、对应 itemIds 与返回格式；参数无效时 error 非空
      */
-    public CompletableFuture<FQNovelResponse<FQBatchChapterResponse>> getBatchChapterContent(FQBatchChapterRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 验证参数
-                if (request.getBookId() == null || request.getBookId().trim().isEmpty()) {
-                    return FQNovelResponse.error("书籍ID不能为空");
-                }
+    private static final class BatchTarget {
+        final List<String> chapterIds;
+        final CompletableFuture<List<String>> itemIds;
+        final FQChapterFormat format;
+        final String error;
+
+        BatchTarget(List<String> chapterIds, CompletableFuture<List<String>> itemIds, FQChapterFormat format, String error) {
+            this.chapterIds = chapterIds;
+            this.itemIds = itemIds;
+            this.format = format;
+            this.error = error;
+        }
 
-                if ((request.getChapterRange() == null || request.getChapterRange().trim().isEmpty())&& request.getChapterIds() == null) {
-                    return FQNovelResponse.error("章节范围或章节ids不能为空");
-                }
+        static BatchTarget invalid(String error) {
+            return new BatchTarget(null, null, null, error);
+        }
+    }
 
-                List<String> itemIds = new ArrayList<>();
-                List<String> chapterIds;
+    private BatchTarget resolveBatchTarget(FQBatchChapterRequest request) {
+        // 验证参数
+        if (request.getBookId() == null || request.getBookId().trim().isEmpty()) {
+            return BatchTarget.invalid("书籍ID不能为空");
+        }
 
-                if (request.getChapterIds() != null && !request.getChapterIds().isEmpty()) {
-                    // 如果提供了章节ID列表，直接使用
-                    itemIds = request.getChapterIds();
-                    chapterIds = request.getChapterIds();
-                } else {
-                    // 否则使用章节范围字符串
-                    chapterIds = parseChapterRange(request.getChapterRange());
-                    if (chapterIds.isEmpty()) {
-                        return FQNovelResponse.error("无效的章节范围格式");
-                    }
+        FQChapterFormat format = FQChapterFormat.parse(request.getFormat());
+        if (format == null) {
+            return BatchTarget.invalid(FQChapterFormat.INVALID_MESSAGE);
+        }
 
-                    // 验证章节数量限制
-                    if (chapterIds.size() < FQConstants.Chapter.MIN_BATCH_SIZE 
-                        || chapterIds.size() > FQConstants.Chapter.MAX_BATCH_SIZE) {
-                        return FQNovelResponse.error("章节数量必须在" + FQConstants.Chapter.MIN_BATCH_SIZE 
-                            + "-" + FQConstants.Chapter.MAX_BATCH_SIZE + "之间，当前请求: " + chapterIds.size());
-                    }
+        if ((request.getChapterRange() == null || request.getChapterRange().trim().isEmpty())&& request.getChapterIds() == null) {
+            return BatchTarget.invalid("章节范围或章节ids不能为空");
+        }
 
-                    if (isChapterPositions(chapterIds)) {
-                        // 输入是章节位置(如1,2,3)，需要通过目录API获取实际的itemIds
-                        itemIds = getItemIdsByChapterPositions(request.getBookId(), chapterIds);
-                    }
-                }
+        if (request.getChapterIds() != null && !request.getChapterIds().isEmpty()) {
+            // 如果提供了章节ID列表，直接使用
+            return new BatchTarget(request.getChapterIds(), CompletableFuture.completedFuture(request.getChapterIds()), format, null);
+        }
 
-                if (itemIds.isEmpty()) {
-                    return FQNovelResponse.error("无法获取章节对应的itemIds，请检查章节范围是否有效");
-                }
+        // 否则使用章节范围字符串
+        List<String> chapterIds = request.getChapterRange() != null ? parseChapterRange(request.getChapterRange()) : new ArrayList<>();
+        if (chapterIds.isEmpty()) {
+            return BatchTarget.invalid("无效的章节范围格式");
+        }
 
-                // 调用批量获取API
-                String itemIdsStr = String.join(",", itemIds);
-                FQNovelResponse<FqIBatchFullResponse> batchResponse = batchFull(itemIdsStr, request.getBookId(), true).get();
+        // 验证章节数量限制
+        if (chapterIds.size() < FQConstants.Chapter.MIN_BATCH_SIZE
+            || chapterIds.size() > FQConstants.Chapter.MAX_BATCH_SIZE) {
+            return BatchTarget.invalid("章节数量必须在" + FQConstants.Chapter.MIN_BATCH_SIZE
+                + "-" + FQConstants.Chapter.MAX_BATCH_SIZE + "之间，当前请求: " + chapterIds.size());
+        }
 
-                if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
-                    return FQNovelResponse.error("获取批量章节内容失败: " + batchResponse.getMessage());
-                }
+        if (isChapterPositions(chapterIds)) {
+            // 输入是章节位置(如1,2,3)，需要通过目录API获取实际的itemIds
+            return new BatchTarget(chapterIds, getItemIdsByChapterPositions(request.getBookId(), chapterIds), format, null);
+        }
+        return new BatchTarget(chapterIds, CompletableFuture.completedFuture(new ArrayList<>()), format, null);
+    }
 
-                FqIBatchFullResponse batchFullResponse = batchResponse.getData();
-                Map<String, ItemContent> dataMap = batchFullResponse.getData();
+    private FQNovelResponse<FQBatchChapterResponse> buildBatchChapterResponse(FQBatchChapterRequest request,
+                                                                              BatchTarget target,
+                                                                              List<String> itemIds,
+                                                                              FQNovelResponse<FqIBatchFullResponse> batchResponse) {
+        List<String> chapterIds = target.chapterIds;
+        if (batchResponse.getCode() != 0 || batchResponse.getData() == null) {
+            return FQNovelResponse.error("获取批量章节内容失败: " + batchResponse.getMessage());
+        }
 
-                if (dataMap == null) {
-                    dataMap = new HashMap<>();
-                }
+        FqIBatchFullResponse batchFullResponse = batchResponse.getData();
+        Map<String, ItemContent> dataMap = batchFullResponse.getData();
 
-                // 构建响应
-                FQBatchChapterResponse response = new FQBatchChapterResponse();
-                response.setBookId(request.getBookId());
-                response.setRequestedRange(request.getChapterRange());
-                response.setTotalRequested(chapterIds.size());
-                // 获取第一个itemId的novelData信息
-                FQNovelData novelData = dataMap.get(itemIds.get(0)).getNovelData();
-
-                // 构建书籍信息 (简化版本)
-                FQNovelBookInfo bookInfo = new FQNovelBookInfo();
-                bookInfo.setBookId(request.getBookId());
-                bookInfo.setBookName(novelData.getBookName());
-                bookInfo.setAuthor(novelData.getAuthor());
-                bookInfo.setCoverUrl(novelData.getThumbUrl());
-                bookInfo.setStatus(novelData.getStatus());
-                // 使用content_chapter_number字段获取章节数，而不是wordNumber（字数）
-                String contentChapterNumber = novelData.getContentChapterNumber();
-                if (contentChapterNumber != null && !contentChapterNumber.isEmpty()) {
-                    try {
-                        bookInfo.setTotalChapters(Integer.parseInt(contentChapterNumber));
-                    } catch (NumberFormatException e) {
-                        log.warn("解析章节数失败 - contentChapterNumber: {}", contentChapterNumber);
-                        bookInfo.setTotalChapters(0);
-                    }
-                } else {
-                    bookInfo.setTotalChapters(0);
-                }
-                response.setBookInfo(bookInfo);
+        if (dataMap == null) {
+            dataMap = new HashMap<>();
+        }
 
-                // 处理每个章节
-                Map<String, FQBatchChapterInfo> chaptersMap = new LinkedHashMap<>();
-                int successCount = 0;
+        // 构建响应
+        FQBatchChapterResponse response = new FQBatchChapterResponse();
+        response.setBookId(request.getBookId());
+        response.setRequestedRange(request.getChapterRange());
+        response.setTotalRequested(chapterIds.size());
+        // 获取第一个itemId的novelData信息
+        FQNovelData novelData = dataMap.get(itemIds.get(0)).getNovelData();
+        response.setBookInfo(buildBatchBookInfo(request.getBookId(), novelData));
+
+        // 处理每个章节（按下标遍历，章节位置与 itemIds 一一对应，无需逐个 indexOf）
+        Map<String, FQBatchChapterInfo> chaptersMap = new LinkedHashMap<>();
+        int successCount = 0;
+        boolean positionMode = isChapterPositions(chapterIds);
+        List<CompletableFuture<FQBatchChapterInfo>> decoded = decodeBatchChapters(itemIds, dataMap, target.format);
+
+        for (int itemIndex = 0; itemIndex < itemIds.size(); itemIndex++) {
+            String itemId = itemIds.get(itemIndex);
+            try {
+                CompletableFuture<FQBatchChapterInfo> future = decoded.get(itemIndex);
 
-                for (String itemId : itemIds) {
-                    try {
-                        ItemContent itemContent = dataMap.get(itemId);
+                if (future == null) {
+                    log.warn("未找到章节内容 - itemId: {}", itemId);
+                    continue;
+                }
 
-                        if (itemContent == null) {
-                            log.warn("未找到章节内容 - itemId: {}", itemId);
-                            continue;
-                        }
+                FQBatchChapterInfo chapterInfo = future.join();
+                if (chapterInfo == null) {
+                    continue;
+                }
 
-                        // 解密章节内容
-                        String decryptedContent = "";
-                        try {
-                            Long contentKeyver = itemContent.getKeyVersion();
-                            String key = registerKeyService.getDecryptionKey(contentKeyver);
-                            decryptedContent = FqCrypto.decryptAndDecompressContent(itemContent.getContent(), key);
-                        } catch (Exception e) {
-                            log.error("解密章节内容失败 - itemId: {}", itemId, e);
-                            continue;
-                        }
+                chaptersMap.put(batchChapterKey(positionMode, chapterIds, itemIndex, itemId), chapterInfo);
+                successCount++;
 
-                        // 提取纯文本内容
-                        String txtContent = extractTextFromHtml(decryptedContent);
-
-                        // 提取章节标题
-                        String title = itemContent.getTitle();
-                        if (title == null || title.trim().isEmpty()) {
-                            // 从HTML中提取标题
-                            Pattern titlePattern = Pattern.compile("<h1[^>]*>.*?<blk[^>]*>([^<]*)</blk>.*?</h1>",
-                                Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-                            Matcher titleMatcher = titlePattern.matcher(decryptedContent);
-                            if (titleMatcher.find()) {
-                                title = titleMatcher.group(1).trim();
-                            } else {
-                                title = "章节 " + itemId;
-                            }
-                        }
+            } catch (Exception e) {
+                log.error("处理章节失败 - itemId: {}", itemId, e);
+            }
+        }
 
-                        // 构建章节信息
-                        FQBatchChapterInfo chapterInfo = new FQBatchChapterInfo();
-                        chapterInfo.setChapterName(title);
-                        chapterInfo.setRawContent(decryptedContent);
-                        chapterInfo.setTxtContent(txtContent);
-                        chapterInfo.setWordCount(txtContent.length());
-                        chapterInfo.setIsFree(true);
-
-                        // 使用对应的章节位置作为key（如果是章节位置模式）
-                        String chapterKey;
-                        if (isChapterPositions(chapterIds)) {
-                            // 找到这个itemId对应的章节位置
-                            int itemIndex = itemIds.indexOf(itemId);
-                            if (itemIndex >= 0 && itemIndex < chapterIds.size()) {
-                                chapterKey = chapterIds.get(itemIndex);
-                            } else {
-                                chapterKey = itemId;
-                            }
-                        } else {
-                            chapterKey = itemId;
-                        }
+        response.setChapters(chaptersMap);
+        response.setSuccessCount(successCount);
+
+        return FQNovelResponse.success(response);
+    }
 
-                        chaptersMap.put(chapterKey, chapterInfo);
-                        successCount++;
+    /**
+     * 构建书籍信息 (简化版本)
+     */
+    private FQNovelBookInfo buildBatchBookInfo(String bookId, FQNovelData novelData) {
+        FQNovelBookInfo bookInfo = new FQNovelBookInfo();
+        bookInfo.setBookId(bookId);
+        bookInfo.setBookName(novelData.getBookName());
+        bookInfo.setAuthor(novelData.getAuthor());
+        bookInfo.setCoverUrl(novelData.getThumbUrl());
+        bookInfo.setStatus(novelData.getStatus());
+        // 使用content_chapter_number字段获取章节数，而不是wordNumber（字数）
+        String contentChapterNumber = novelData.getContentChapterNumber();
+        if (contentChapterNumber != null && !contentChapterNumber.isEmpty()) {
+            try {
+                bookInfo.setTotalChapters(Integer.parseInt(contentChapterNumber));
+            } catch (NumberFormatException e) {
+                log.warn("解析章节数失败 - contentChapterNumber: {}", contentChapterNumber);
+                bookInfo.setTotalChapters(0);
+            }
+        } else {
+            bookInfo.setTotalChapters(0);
+        }
+        return bookInfo;
+    }
 
-                    } catch (Exception e) {
+    /**
+     * 在解码线程池上并行解码批次内的章节；结果与 itemIds 一一对应，批量接口未返回的章节对应 null
+     */
+    private List<CompletableFuture<FQBatchChapterInfo>> decodeBatchChapters(List<String> itemIds, Map<String, ItemContent> dataMap,
+                                                                            FQChapterFormat format) {
+        List<CompletableFuture<FQBatchChapterInfo>> futures = new ArrayList<>(itemIds.size());
+        for (String itemId : itemIds) {
+            ItemContent itemContent = dataMap.get(itemId);
+            // 直接返回 supplyAsync 的 future（异常在任务内处理），取消时尚未执行的解码任务会被跳过
+            futures.add(itemContent == null ? null
+                : CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return buildBatchChapterInfo(itemId, itemContent, format);
+                    } catch (RuntimeException e) {
                         log.error("处理章节失败 - itemId: {}", itemId, e);
+                        return null;
                     }
-                }
+                }, decodeExecutor));
+        }
+        return futures;
+    }
+
+    /**
+     * 解密并构建单个章节（按请求的格式只返回需要的内容）；解密失败返回 null
+     */
+    private FQBatchChapterInfo buildBatchChapterInfo(String itemId, ItemContent itemContent, FQChapterFormat format) {
+        // 解密章节内容
+        String decryptedContent;
+        try {
+            Long contentKeyver = itemContent.getKeyVersion();
+            SecretKeySpec key = registerKeyService.getDecryptionKeySpec(contentKeyver);
+            decryptedContent = FqCrypto.decryptAndDecompressContent(itemContent.getContent(), key);
+        } catch (Exception e) {
+            log.error("解密章节内容失败 - itemId: {}", itemId, e);
+            return null;
+        }
 
-                response.setChapters(chaptersMap);
-                response.setSuccessCount(successCount);
+        // 提取纯文本内容和标题
+        ChapterHtmlUtils.ChapterText parsed = ChapterHtmlUtils.parse(decryptedContent);
 
-                return FQNovelResponse.success(response);
+        // 提取章节标题
+        String title = itemContent.getTitle();
+        if (title == null || title.trim().isEmpty()) {
+            // 使用HTML中的标题
+            title = parsed.getTitle() != null ? parsed.getTitle() : "章节 " + itemId;
+        }
 
-            } catch (Exception e) {
-                log.error("批量获取章节内容失败 - bookId: {}, range: {}",
-                    request.getBookId(), request.getChapterRange(), e);
-                return FQNovelResponse.error("批量获取章节内容失败: " + e.getMessage());
-            }
-        }, taskExecutor);
+        // 构建章节信息
+        FQBatchChapterInfo chapterInfo = new FQBatchChapterInfo();
+        chapterInfo.setChapterName(title);
+        if (format.includesRaw()) {
+            chapterInfo.setRawContent(decryptedContent);
+        }
+        if (format.includesText()) {
+            chapterInfo.setTxtContent(parsed.getText());
+        }
+        chapterInfo.setWordCount(parsed.getWordCount());
+        chapterInfo.setIsFree(true);
+        return chapterInfo;
+    }
+
+    /**
+     * 使用对应的章节位置作为key（如果是章节位置模式），否则使用 itemId
+     */
+    private static String batchChapterKey(boolean positionMode, List<String> chapterIds, int itemIndex, String itemId) {
+        if (positionMode && itemIndex < chapterIds.size()) {
+            return chapterIds.get(itemIndex);
+        }
+        return itemId;
+    }
+
+    /**
+     * 展开 CompletableFuture 链路上包装的异常，便于记录真实原因
+     */
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof java.util.concurrent.CompletionException
+            || cause instanceof java.util.concurrent.ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
     }
 
     /**
@@ -760,57 +977,53 @@ public class FQNovelService {
      * @param chapterPositions 章节位置列表（如["1", "2", "3"]）
      * @return 对应的itemIds列表
      */
-    private List<String> getItemIdsByChapterPositions(String bookId, List<String> chapterPositions) {
-        List<String> itemIds = new ArrayList<>();
-
-        try {
-            // 构建目录请求
-            FQDirectoryRequest directoryRequest = new FQDirectoryRequest();
-            directoryRequest.setBookId(bookId);
-            directoryRequest.setBookType(0);
-            directoryRequest.setNeedVersion(true);
-
-            // 获取书籍目录
-            FQNovelResponse<FQDirectoryResponse> directoryResponse = fqSearchService.getBookDirectory(directoryRequest).get();
+    private CompletableFuture<List<String>> getItemIdsByChapterPositions(String bookId, List<String> chapterPositions) {
+        // 获取书籍目录（缓存）
+        return directoryCacheService.getDirectory(bookId)
+            .thenApply(directoryResponse -> {
+                List<String> itemIds = new ArrayList<>();
 
-            if (directoryResponse.getCode() != 0 || directoryResponse.getData() == null) {
-                log.error("获取书籍目录失败 - bookId: {}, error: {}", bookId, directoryResponse.getMessage());
-                return itemIds;
-            }
+                if (directoryResponse.getCode() != 0 || directoryResponse.getData() == null) {
+                    log.error("获取书籍目录失败 - bookId: {}, error: {}", bookId, directoryResponse.getMessage());
+                    return itemIds;
+                }
 
-            List<FQDirectoryResponse.CatalogItem> catalogItems = directoryResponse.getData().getCatalogData();
-            if (catalogItems == null || catalogItems.isEmpty()) {
-                log.error("书籍目录为空 - bookId: {}", bookId);
-                return itemIds;
-            }
+                List<FQDirectoryResponse.CatalogItem> catalogItems = directoryResponse.getData().getCatalogData();
+                if (catalogItems == null || catalogItems.isEmpty()) {
+                    log.error("书籍目录为空 - bookId: {}", bookId);
+                    return itemIds;
+                }
 
-            // 构建章节位置到itemId的映射
-            // 目录中的章节按顺序排列，第1章对应索引0，第2章对应索引1，以此类推
-            for (String positionStr : chapterPositions) {
-                try {
-                    int position = Integer.parseInt(positionStr);
-                    int index = position - 1; // 转换为0基索引
+                // 构建章节位置到itemId的映射
+                // 目录中的章节按顺序排列，第1章对应索引0，第2章对应索引1，以此类推
+                for (String positionStr : chapterPositions) {
+                    try {
+                        int position = Integer.parseInt(positionStr);
+                        int index = position - 1; // 转换为0基索引
 
-                    if (index >= 0 && index < catalogItems.size()) {
-                        String itemId = catalogItems.get(index).getItemId();
-                        if (itemId != null && !itemId.trim().isEmpty()) {
-                            itemIds.add(itemId);
+                        if (index >= 0 && index < catalogItems.size()) {
+                            String itemId = catalogItems.get(index).getItemId();
+                            if (itemId != null && !itemId.trim().isEmpty()) {
+                                itemIds.add(itemId);
+                            } else {
+                                log.warn("章节位置 {} 对应的itemId为空 - bookId: {}", position, bookId);
+                            }
                         } else {
-                            log.warn("章节位置 {} 对应的itemId为空 - bookId: {}", position, bookId);
+                            log.warn("章节位置 {} 超出范围，总章节数: {} - bookId: {}", position, catalogItems.size(), bookId);
                         }
-                    } else {
-                        log.warn("章节位置 {} 超出范围，总章节数: {} - bookId: {}", position, catalogItems.size(), bookId);
+                    } catch (NumberFormatException e) {
+                        log.error("无效的章节位置: {} - bookId: {}", positionStr, bookId, e);
                     }
-                } catch (NumberFormatException e) {
-                    log.error("无效的章节位置: {} - bookId: {}", positionStr, bookId, e);
                 }
-            }
 
-        } catch (Exception e) {
-            log.error("获取章节itemIds失败 - bookId: {}, positions: {}", bookId, chapterPositions, e);
-        }
-
-        return itemIds;
+                return itemIds;
+            })
+            .exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                OverloadedException.rethrowIfRejected(cause);
+                log.error("获取章节itemIds失败 - bookId: {}, positions: {}", bookId, chapterPositions, cause);
+                return new ArrayList<>();
+            });
     }
 
     /**
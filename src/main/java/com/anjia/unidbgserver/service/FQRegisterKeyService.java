@@ -7,23 +7,51 @@ import com.anjia.unidbgserver.utils.GzipUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * FQNovel RegisterKey缓存服务
  * 在启动时获取registerkey并缓存，支持keyver比较和自动刷新
+ * 读路径不加锁：已缓存的keyver直接命中；缺失时合并为同一个后台刷新，只有需要该keyver的调用方等待
+ * 启动时先加载本地持久化的各keyver，再后台预热/定时刷新，首章解密不必等待上游
  */
 @Slf4j
 @Service
 public class FQRegisterKeyService {
 
+    /**
+     * 持久化保留的keyver数量（按keyver从新到旧）
+     */
+    private static final int MAX_PERSISTED_KEYVERS = 16;
+
     @Resource(name = "fqEncryptWorker")
     private FQEncryptServiceWorker fqEncryptServiceWorker;
 
@@ -48,6 +76,25 @@ public class FQRegisterKeyService {
     // 当前默认的registerkey响应
     private volatile FqRegisterKeyResponse currentRegisterKey;
 
+    // 按keyver缓存的已解析解密密钥：registerkey 解密与十六进制解析每个keyver只做一次
+    private final Map<Long, SecretKeySpec> decryptionKeys = new ConcurrentHashMap<>();
+
+    // 进行中的刷新（同一时刻只有一个，缺失同一/不同keyver的调用方都等它）
+    private final AtomicReference<CompletableFuture<FqRegisterKeyResponse>> inflightRefresh = new AtomicReference<>();
+
+    // 清除缓存时递增：清除前发起的刷新结果不再写回缓存（例如设备切换后旧设备的响应）
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // 最近一次从上游刷新成功的时间（含从本地快照加载的刷新时间）
+    private volatile long lastRefreshedAt;
+
+    // 刷新在独立线程执行，签名与 HTTP 请求不占用调用方所在的业务/解码线程池；定时刷新也在这里调度
+    private final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "fq-registerkey-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * 获取默认FQ变量（延迟初始化）
      */
@@ -55,13 +102,53 @@ public class FQRegisterKeyService {
         return new FqVariable(fqApiProperties);
     }
 
+    /**
+     * 启动预热：加载本地快照，快照缺失/过期时后台刷新，并按间隔定时提前刷新
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        loadSnapshot();
+
+        long interval = fqApiProperties.getRegisterKeyRefreshIntervalMs();
+        long age = System.currentTimeMillis() - lastRefreshedAt;
+        if (currentRegisterKey == null || (interval > 0 && age >= interval)) {
+            refreshAsync().whenComplete((response, e) -> {
+                if (e != null) {
+                    log.warn("启动预热获取registerkey失败，首次解密时会再刷新", e);
+                }
+            });
+        }
+        if (interval > 0) {
+            long initialDelay = currentRegisterKey == null ? interval : Math.max(0L, interval - age);
+            refreshExecutor.scheduleWithFixedDelay(this::scheduledRefresh,
+                Math.max(initialDelay, 1000L), interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledRefresh() {
+        try {
+            long interval = fqApiProperties.getRegisterKeyRefreshIntervalMs();
+            // 期间已因keyver缺失/设备切换刷新过的，跳过本轮
+            if (System.currentTimeMillis() - lastRefreshedAt < interval / 2) {
+                return;
+            }
+            refreshAsync().whenComplete((response, e) -> {
+                if (e != null) {
+                    log.warn("后台定时刷新registerkey失败，继续使用已缓存的keyver", e);
+                }
+            });
+        } catch (Throwable t) {
+            log.warn("后台定时刷新registerkey异常", t);
+        }
+    }
+
     /**
      * 获取registerkey，支持keyver比较和自动刷新
      *
      * @param requiredKeyver 需要的keyver，如果为null或<=0则使用当前缓存的key
      * @return RegisterKey响应
      */
-    public synchronized FqRegisterKeyResponse getRegisterKey(Long requiredKeyver) throws Exception {
+    public FqRegisterKeyResponse getRegisterKey(Long requiredKeyver) throws Exception {
         Long normalizedKeyver = normalizeKeyver(requiredKeyver);
 
         // 如果没有指定有效keyver，返回当前缓存的key
@@ -69,11 +156,12 @@ public class FQRegisterKeyService {
             if (requiredKeyver != null) {
                 log.debug("收到无效keyver({})，将使用当前缓存的registerkey", requiredKeyver);
             }
-            if (currentRegisterKey != null) {
-                return currentRegisterKey;
+            FqRegisterKeyResponse current = currentRegisterKey;
+            if (current != null) {
+                return current;
             }
             // 如果当前没有缓存的key，获取一个新的
-            return refreshRegisterKey();
+            return await(refreshAsync());
         }
 
         // 检查是否已经缓存了指定keyver的key
@@ -84,14 +172,15 @@ public class FQRegisterKeyService {
         }
 
         // 如果当前缓存的key的keyver不匹配，需要刷新
-        if (currentRegisterKey == null || currentRegisterKey.getData().getKeyver() != normalizedKeyver) {
+        FqRegisterKeyResponse current = currentRegisterKey;
+        if (current == null || current.getData().getKeyver() != normalizedKeyver) {
             log.info("当前registerkey keyver ({}) 与需要的keyver ({}) 不匹配，刷新registerkey...",
-                    currentRegisterKey != null ? currentRegisterKey.getData().getKeyver() : "null",
+                    current != null ? current.getData().getKeyver() : "null",
                     normalizedKeyver);
-            return refreshRegisterKey();
+            return await(refreshAsync());
         }
 
-        return currentRegisterKey;
+        return current;
     }
 
     private Long normalizeKeyver(Long keyver) {
@@ -102,25 +191,169 @@ public class FQRegisterKeyService {
     }
 
     /**
-     * 刷新registerkey
+     * 刷新registerkey（已有刷新进行中时等待同一次结果）
      *
      * @return 新的RegisterKey响应
      */
-    public synchronized FqRegisterKeyResponse refreshRegisterKey() throws Exception {
+    public FqRegisterKeyResponse refreshRegisterKey() throws Exception {
+        return await(refreshAsync());
+    }
+
+    /**
+     * 发起或加入进行中的刷新
+     *
+     * @return 本次刷新结果
+     */
+    private CompletableFuture<FqRegisterKeyResponse> refreshAsync() {
+        while (true) {
+            CompletableFuture<FqRegisterKeyResponse> pending = inflightRefresh.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<FqRegisterKeyResponse> created = new CompletableFuture<>();
+            if (!inflightRefresh.compareAndSet(null, created)) {
+                continue;
+            }
+            int gen = generation.get();
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        FqRegisterKeyResponse response = doRefresh(gen);
+                        inflightRefresh.compareAndSet(created, null);
+                        created.complete(response);
+                    } catch (Throwable t) {
+                        inflightRefresh.compareAndSet(created, null);
+                        created.completeExceptionally(t);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inflightRefresh.compareAndSet(created, null);
+                created.completeExceptionally(e);
+            }
+            return created;
+        }
+    }
+
+    private FqRegisterKeyResponse doRefresh(int gen) throws Exception {
         log.info("刷新registerkey...");
         FqRegisterKeyResponse response = fetchRegisterKey();
 
         if (response != null && response.getData() != null) {
             long keyver = response.getData().getKeyver();
+            if (generation.get() != gen) {
+                log.info("registerkey缓存已在刷新期间清除，丢弃本次结果，keyver: {}", keyver);
+                return response;
+            }
             cachedRegisterKeys.put(keyver, response);
             currentRegisterKey = response;
+            lastRefreshedAt = System.currentTimeMillis();
             log.info("registerkey刷新成功，新keyver: {}", keyver);
+            saveSnapshot();
             return response;
         } else {
             throw new Exception("刷新registerkey失败，响应为空");
         }
     }
 
+    /**
+     * 加载本地快照中当前设备的各keyver
+     */
+    private void loadSnapshot() {
+        Path file = snapshotFile();
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            FqRegisterKeySnapshot snapshot = objectMapper.readValue(file.toFile(), FqRegisterKeySnapshot.class);
+            FQApiProperties.Device device = fqApiProperties.getDevice();
+            if (device == null
+                || !Objects.equals(snapshot.getDeviceId(), device.getDeviceId())
+                || !Objects.equals(snapshot.getInstallId(), device.getInstallId())) {
+                log.info("registerkey本地快照属于其他设备，已忽略 - deviceId: {}", snapshot.getDeviceId());
+                return;
+            }
+            if (snapshot.getKeys() == null) {
+                return;
+            }
+            for (FqRegisterKeyPayloadResponse payload : snapshot.getKeys()) {
+                if (payload == null || payload.getKey() == null || payload.getKeyver() <= 0) {
+                    continue;
+                }
+                FqRegisterKeyResponse response = new FqRegisterKeyResponse();
+                response.setData(payload);
+                cachedRegisterKeys.putIfAbsent(payload.getKeyver(), response);
+            }
+            if (currentRegisterKey == null && snapshot.getCurrentKeyver() != null) {
+                currentRegisterKey = cachedRegisterKeys.get(snapshot.getCurrentKeyver());
+                lastRefreshedAt = snapshot.getRefreshedAt() != null ? snapshot.getRefreshedAt() : 0L;
+            }
+            log.info("已加载registerkey本地快照 - keyvers: {}, currentKeyver: {}",
+                cachedRegisterKeys.keySet(), snapshot.getCurrentKeyver());
+        } catch (IOException e) {
+            log.warn("registerkey本地快照读取失败，已忽略 - 文件: {}", file, e);
+        }
+    }
+
+    /**
+     * 保存当前设备已获取的各keyver（只在刷新线程中调用）
+     */
+    private void saveSnapshot() {
+        Path file = snapshotFile();
+        FqRegisterKeyResponse current = currentRegisterKey;
+        if (file == null || current == null) {
+            return;
+        }
+        List<FqRegisterKeyPayloadResponse> keys = new ArrayList<>();
+        for (FqRegisterKeyResponse response : cachedRegisterKeys.values()) {
+            if (response.getData() != null) {
+                keys.add(response.getData());
+            }
+        }
+        keys.sort(Comparator.comparingLong(FqRegisterKeyPayloadResponse::getKeyver).reversed());
+        if (keys.size() > MAX_PERSISTED_KEYVERS) {
+            keys = new ArrayList<>(keys.subList(0, MAX_PERSISTED_KEYVERS));
+        }
+
+        FqRegisterKeySnapshot snapshot = new FqRegisterKeySnapshot();
+        FQApiProperties.Device device = fqApiProperties.getDevice();
+        snapshot.setDeviceId(device != null ? device.getDeviceId() : null);
+        snapshot.setInstallId(device != null ? device.getInstallId() : null);
+        snapshot.setCurrentKeyver(current.getData().getKeyver());
+        snapshot.setRefreshedAt(lastRefreshedAt);
+        snapshot.setKeys(keys);
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, objectMapper.writeValueAsBytes(snapshot));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("registerkey本地快照写入失败 - 文件: {}", file, e);
+        }
+    }
+
+    private Path snapshotFile() {
+        String file = fqApiProperties.getRegisterKeyCacheFile();
+        if (file == null || file.trim().isEmpty()) {
+            return null;
+        }
+        return Paths.get(file.trim());
+    }
+
+    private static FqRegisterKeyResponse await(CompletableFuture<FqRegisterKeyResponse> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * 实际获取registerkey的方法
      *
@@ -193,11 +426,40 @@ public class FQRegisterKeyService {
         return registerKeyResponse.getData().getRealKey();
     }
 
+    /**
+     * 获取指定keyver的解密密钥（已解析为 AES 密钥，按keyver缓存）
+     *
+     * @param requiredKeyver 需要的keyver
+     * @return AES 密钥
+     */
+    public SecretKeySpec getDecryptionKeySpec(Long requiredKeyver) throws Exception {
+        Long normalizedKeyver = normalizeKeyver(requiredKeyver);
+        if (normalizedKeyver != null) {
+            SecretKeySpec cached = decryptionKeys.get(normalizedKeyver);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        FqRegisterKeyResponse registerKeyResponse = getRegisterKey(requiredKeyver);
+        long keyver = registerKeyResponse.getData().getKeyver();
+        SecretKeySpec cached = decryptionKeys.get(keyver);
+        if (cached != null) {
+            return cached;
+        }
+        SecretKeySpec key = FqCrypto.aesKey(registerKeyResponse.getData().getRealKey());
+        SecretKeySpec existing = decryptionKeys.putIfAbsent(keyver, key);
+        return existing != null ? existing : key;
+    }
+
     /**
      * 清除缓存
      */
     public void clearCache() {
+        generation.incrementAndGet();
+        inflightRefresh.set(null);
         cachedRegisterKeys.clear();
+        decryptionKeys.clear();
         currentRegisterKey = null;
         log.info("registerkey缓存已清除");
     }
@@ -209,7 +471,15 @@ public class FQRegisterKeyService {
         Map<String, Object> status = new HashMap<>();
         status.put("cachedKeyversCount", cachedRegisterKeys.size());
         status.put("cachedKeyvers", cachedRegisterKeys.keySet());
-        status.put("currentKeyver", currentRegisterKey != null ? currentRegisterKey.getData().getKeyver() : null);
+        FqRegisterKeyResponse current = currentRegisterKey;
+        status.put("currentKeyver", current != null ? current.getData().getKeyver() : null);
+        status.put("refreshing", inflightRefresh.get() != null);
+        status.put("lastRefreshedAt", lastRefreshedAt > 0 ? lastRefreshedAt : null);
         return status;
     }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
 }
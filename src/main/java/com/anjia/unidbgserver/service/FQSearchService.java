@@ -41,6 +41,9 @@ public class FQSearchService {
     @Resource
     private UpstreamRateLimiter upstreamRateLimiter;
 
+    @Resource
+    private FQNegativeCacheService negativeCacheService;
+
     @Resource
     private FQDeviceRotationService deviceRotationService;
 
@@ -56,8 +59,11 @@ public class FQSearchService {
     @Resource
     private ObjectMapper objectMapper;
 
-    @Resource(name = "applicationTaskExecutor")
-    private Executor taskExecutor;
+    @Resource(name = "fqSearchExecutor")
+    private Executor searchExecutor;
+
+    @Resource(name = "fqInteractiveExecutor")
+    private Executor interactiveExecutor;
 
     private Map<String, String> buildSearchHeaders() {
         Map<String, String> base = fqApiUtils.buildCommonHeaders();
@@ -190,7 +196,14 @@ public class FQSearchService {
      * @return 搜索结果
      */
     public CompletableFuture<FQNovelResponse<FQSearchResponse>> searchBooksEnhanced(FQSearchRequest searchRequest) {
-        return CompletableFuture.supplyAsync(() -> {
+        // 同一查询刚被上游明确拒绝过：直接失败，不再走签名 + 限流 + 两阶段请求
+        String negativeKey = searchNegativeKey(searchRequest);
+        FQNegativeCacheService.Entry negative = negativeCacheService.get(FQNegativeCacheService.Scope.QUERY, negativeKey);
+        if (negative != null) {
+            return CompletableFuture.completedFuture(negative.toResponse());
+        }
+
+        return CompletableFuture.<FQNovelResponse<FQSearchResponse>>supplyAsync(RequestDeadline.propagate(RequestDeadline.current(), () -> {
             try {
                 if (ProcessLifecycle.isShuttingDown()) {
                     return FQNovelResponse.error("服务正在退出中，请稍后重试");
@@ -323,12 +336,37 @@ public class FQSearchService {
                 }
                 return secondResponse;
 
+            } catch (DeadlineExceededException e) {
+                // 调用方已放弃：不计入失败
+                return FQNovelResponse.error("增强搜索已放弃: " + e.getMessage());
             } catch (Exception e) {
                 log.error("增强搜索失败 - query: {}", searchRequest.getQuery(), e);
                 autoRestartService.recordFailure("SEARCH_EXCEPTION");
                 return FQNovelResponse.error("增强搜索失败: " + e.getMessage());
             }
-        }, taskExecutor);
+        }), searchExecutor).thenApply(response -> {
+            recordSearchFailure(negativeKey, response);
+            return response;
+        });
+    }
+
+    /**
+     * 上游返回错误码且不像风控（换设备也不会好转）时，记录查询负缓存
+     */
+    private void recordSearchFailure(String negativeKey, FQNovelResponse<FQSearchResponse> response) {
+        if (response == null || response.getCode() == null || response.getCode() == 0 || response.getCode() == -1) {
+            return;
+        }
+        if (shouldRotate(response.getMessage())) {
+            return;
+        }
+        negativeCacheService.record(FQNegativeCacheService.Scope.QUERY, negativeKey,
+            FQNegativeCacheService.Reason.UPSTREAM_ERROR, response.getCode(), response.getMessage());
+    }
+
+    private static String searchNegativeKey(FQSearchRequest request) {
+        return request.getQuery() + "|" + request.getTabType() + "|" + request.getOffset() + "|"
+            + request.getCount() + "|" + request.getSearchId();
     }
 
     /**
@@ -517,6 +555,8 @@ public class FQSearchService {
 
             return FQNovelResponse.success(searchResponse);
 
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("搜索请求失败 - query: {}", searchRequest.getQuery(), e);
             return FQNovelResponse.error("搜索请求失败: " + e.getMessage());
@@ -524,15 +564,7 @@ public class FQSearchService {
     }
 
     private static boolean shouldRotate(String message) {
-        if (isBlank(message)) {
-            return false;
-        }
-        String m = message.toLowerCase(Locale.ROOT);
-        return m.contains("illegal_access")
-            || m.contains("risk")
-            || m.contains("风控")
-            || m.contains("forbidden")
-            || m.contains("permission");
+        return FQDeviceRotationService.isRiskControlMessage(message);
     }
 
     /**
@@ -542,7 +574,7 @@ public class FQSearchService {
      * @return 搜索结果
      */
     public CompletableFuture<FQNovelResponse<FQSearchResponse>> searchBooks(FQSearchRequest searchRequest) {
-        return CompletableFuture.supplyAsync(() -> {
+        return CompletableFuture.supplyAsync(RequestDeadline.propagate(RequestDeadline.current(), () -> {
             try {
                 if (ProcessLifecycle.isShuttingDown()) {
                     return FQNovelResponse.error("服务正在退出中，请稍后重试");
@@ -586,12 +618,15 @@ public class FQSearchService {
                 autoRestartService.recordSuccess();
                 return FQNovelResponse.success(searchResponse);
 
+            } catch (DeadlineExceededException e) {
+                // 调用方已放弃：不计入失败
+                return FQNovelResponse.error("搜索书籍已放弃: " + e.getMessage());
             } catch (Exception e) {
                 log.error("搜索书籍失败 - query: {}", searchRequest.getQuery(), e);
                 autoRestartService.recordFailure("SEARCH_SIMPLE_EXCEPTION");
                 return FQNovelResponse.error("搜索书籍失败: " + e.getMessage());
             }
-        }, taskExecutor);
+        }), searchExecutor);
     }
 
     /**
@@ -601,7 +636,7 @@ public class FQSearchService {
      * @return 书籍目录
      */
     public CompletableFuture<FQNovelResponse<FQDirectoryResponse>> getBookDirectory(FQDirectoryRequest directoryRequest) {
-        return CompletableFuture.supplyAsync(() -> {
+        return CompletableFuture.supplyAsync(RequestDeadline.propagate(RequestDeadline.current(), () -> {
             try {
                 if (ProcessLifecycle.isShuttingDown()) {
                     return FQNovelResponse.error("服务正在退出中，请稍后重试");
@@ -669,11 +704,14 @@ public class FQSearchService {
 
                 return FQNovelResponse.success(directoryResponse);
 
+            } catch (DeadlineExceededException e) {
+                // 调用方已放弃：不计入失败
+                return FQNovelResponse.error("获取书籍目录已放弃: " + e.getMessage());
             } catch (Exception e) {
                 log.error("获取书籍目录失败 - bookId: {}", directoryRequest.getBookId(), e);
                 return FQNovelResponse.error("获取书籍目录失败: " + e.getMessage());
             }
-        }, taskExecutor);
+        }), interactiveExecutor);
     }
 
     /**
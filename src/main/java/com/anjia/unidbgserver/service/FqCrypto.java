@@ -5,14 +5,18 @@ import lombok.extern.slf4j.Slf4j;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.zip.GZIPInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * FQNovel加密解密工具类
@@ -25,10 +29,22 @@ public class FqCrypto {
      * 注册密钥的固定key
      */
     public static final String REG_KEY = "ac25c67ddd8f38c1b37a2348828e222e";
+
+    private static final String AES_CBC_PKCS5 = "AES/CBC/PKCS5Padding";
     
     private final SecretKeySpec secretKey;
     
     public FqCrypto(String hexKey) throws Exception {
+        this.secretKey = aesKey(hexKey);
+    }
+
+    /**
+     * 十六进制密钥解析为 AES 密钥；调用方可按 keyver 缓存结果，避免每次解密重复解析
+     *
+     * @param hexKey 32 位十六进制密钥
+     * @return AES 密钥
+     */
+    public static SecretKeySpec aesKey(String hexKey) {
         if (hexKey == null || hexKey.length() != 32) {
             throw new IllegalArgumentException("Key length mismatch! Expected 32 hex chars, got: " + 
                 (hexKey != null ? hexKey.length() : "null"));
@@ -39,7 +55,7 @@ public class FqCrypto {
             throw new IllegalArgumentException("Key must be 16 bytes after hex decode");
         }
         
-        this.secretKey = new SecretKeySpec(keyBytes, "AES");
+        return new SecretKeySpec(keyBytes, "AES");
     }
     
     /**
@@ -54,7 +70,7 @@ public class FqCrypto {
             throw new IllegalArgumentException("IV must be 16 bytes");
         }
         
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5);
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
         cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
         
@@ -82,7 +98,7 @@ public class FqCrypto {
         byte[] encryptedData = new byte[decodedData.length - 16];
         System.arraycopy(decodedData, 16, encryptedData, 0, encryptedData.length);
         
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5);
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
         cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
         
@@ -150,7 +166,7 @@ public class FqCrypto {
         byte[] keyBytes = hexStringToByteArray(aesKeyHex);
         
         // 创建AES解密器
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5);
         SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
         IvParameterSpec ivSpec = new IvParameterSpec(iv);
         cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
@@ -222,21 +238,58 @@ public class FqCrypto {
      * @return 解密并解压后的文本内容
      */
     public static String decryptAndDecompressContent(String encryptedContent, String keyHex) throws Exception {
-        // 解密内容
-        FqCrypto crypto = new FqCrypto(keyHex);
-        byte[] decryptedBytes = crypto.decrypt(encryptedContent);
-        
+        return decryptAndDecompressContent(encryptedContent, aesKey(keyHex));
+    }
+
+    /**
+     * 解密并解压缩内容（使用已解析的密钥，见 {@link #aesKey}）
+     *
+     * @param encryptedContent 加密的内容 (Base64编码)
+     * @param key AES 密钥
+     * @return 解密并解压后的文本内容
+     */
+    public static String decryptAndDecompressContent(String encryptedContent, SecretKeySpec key) throws Exception {
+        // Base64 字符只有 ASCII，按 ISO-8859-1 取字节即一字符一字节
+        return decryptAndDecompressContent(encryptedContent.getBytes(StandardCharsets.ISO_8859_1), key);
+    }
+
+    public static String decryptAndDecompressContent(byte[] encryptedBase64, String keyHex) throws Exception {
+        return decryptAndDecompressContent(encryptedBase64, aesKey(keyHex));
+    }
+
+    /**
+     * 解密并解压缩内容（输入为 Base64 文本的 ASCII 字节，如缓存中的密文）
+     * Base64 解码、AES 解密、gzip 解压依次写入线程内复用的缓冲区，只在最后生成一次字符串：
+     * - Base64 直接解码到缓冲区；
+     * - AES 从偏移 16 处解密（前 16 字节为 IV），不再拷贝 IV/密文；Cipher 实例线程内复用，每次只用新 IV 重新 init；
+     * - 明文用复用的 Inflater 直接解压，按 gzip 尾部记录的原始长度分配输出，最后一次性按 UTF-8 解码。
+     *
+     * @param encryptedBase64 Base64编码的加密内容（ASCII字节）
+     * @param key AES 密钥
+     * @return 解密并解压后的文本内容
+     */
+    public static String decryptAndDecompressContent(byte[] encryptedBase64, SecretKeySpec key) throws Exception {
+        Buffers buffers = BUFFERS.get();
+
+        // Base64 解码
+        byte[] decoded = buffers.decoded(estimateDecodedLength(encryptedBase64));
+        int decodedLength = Base64.getDecoder().decode(encryptedBase64, decoded);
+        if (decodedLength < 16) {
+            throw new IllegalArgumentException("Encrypted data too short");
+        }
+
+        // AES-CBC 解密：前16字节是IV，剩余部分是加密数据
+        Cipher cipher = buffers.cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(decoded, 0, 16));
+        byte[] plain = buffers.plain(cipher.getOutputSize(decodedLength - 16));
+        int plainLength = cipher.doFinal(decoded, 16, decodedLength - 16, plain, 0);
+
         // 检查是否是 gzip 压缩数据 (gzip 魔法数字: 0x1f, 0x8b)
-        if (decryptedBytes.length >= 2 && 
-            (decryptedBytes[0] & 0xff) == 0x1f && 
-            (decryptedBytes[1] & 0xff) == 0x8b) {
-            
-            // 解压缩 gzip 数据
-            return decompressGzip(decryptedBytes);
-        } else {
-            // 如果不是压缩数据，直接返回UTF-8字符串
-            return new String(decryptedBytes, StandardCharsets.UTF_8);
+        if (isGzip(plain, 0, plainLength)) {
+            return inflateGzip(plain, plainLength, buffers);
         }
+        // 如果不是压缩数据，直接返回UTF-8字符串
+        return new String(plain, 0, plainLength, StandardCharsets.UTF_8);
     }
     
     /**
@@ -246,19 +299,190 @@ public class FqCrypto {
      * @return 解压后的字符串
      */
     public static String decompressGzip(byte[] compressedData) throws IOException {
-        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(compressedData));
-             InputStreamReader reader = new InputStreamReader(gzipStream, StandardCharsets.UTF_8)) {
-            
-            StringBuilder result = new StringBuilder();
-            char[] buffer = new char[1024];
-            int charsRead;
-            
-            while ((charsRead = reader.read(buffer)) != -1) {
-                result.append(buffer, 0, charsRead);
+        return inflateGzip(compressedData, compressedData.length, BUFFERS.get());
+    }
+
+    /**
+     * gzip 解压为 UTF-8 字符串（支持多个 member 串联，与 GZIPInputStream 一致），校验每个 member 的 CRC32 与长度
+     */
+    private static String inflateGzip(byte[] data, int length, Buffers buffers) throws IOException {
+        // ISIZE（末尾 4 字节）即原始长度（单 member 时准确），据此一次分配到位
+        long sizeHint = length >= 18 ? readIntLE(data, length - 4) & 0xffffffffL : 0L;
+        byte[] out = buffers.inflated((int) Math.min(Math.max(sizeHint, length * 4L), MAX_INFLATED_HINT));
+        int outLength = 0;
+
+        Inflater inflater = buffers.inflater;
+        CRC32 crc = buffers.crc;
+        int pos = 0;
+        do {
+            pos = skipGzipHeader(data, pos, length);
+            inflater.reset();
+            crc.reset();
+            inflater.setInput(data, pos, length - pos);
+            int memberStart = outLength;
+            try {
+                while (!inflater.finished()) {
+                    if (outLength == out.length) {
+                        out = buffers.growInflated(out);
+                    }
+                    int n = inflater.inflate(out, outLength, out.length - outLength);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Unexpected end of gzip data");
+                    }
+                    outLength += n;
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid deflate data");
+            }
+            crc.update(out, memberStart, outLength - memberStart);
+
+            // member 尾部：CRC32 + ISIZE（小端）
+            pos = length - inflater.getRemaining();
+            if (length - pos < 8) {
+                throw new EOFException("Unexpected end of gzip trailer");
+            }
+            if ((readIntLE(data, pos) & 0xffffffffL) != crc.getValue()
+                || (readIntLE(data, pos + 4) & 0xffffffffL) != ((outLength - memberStart) & 0xffffffffL)) {
+                throw new ZipException("Corrupt gzip trailer");
+            }
+            pos += 8;
+        } while (isGzip(data, pos, length));
+
+        return new String(out, 0, outLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 跳过 gzip 头（RFC 1952），返回 deflate 数据起点
+     */
+    private static int skipGzipHeader(byte[] data, int pos, int length) throws IOException {
+        if (length - pos < 10 || !isGzip(data, pos, length)) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if ((data[pos + 2] & 0xff) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = data[pos + 3] & 0xff;
+        int p = pos + 10;
+        if ((flags & GZIP_FEXTRA) != 0) {
+            if (length - p < 2) {
+                throw new EOFException("Unexpected end of gzip header");
+            }
+            p += 2 + ((data[p] & 0xff) | ((data[p + 1] & 0xff) << 8));
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            p = skipZeroTerminated(data, p, length);
+        }
+        if ((flags & GZIP_FCOMMENT) != 0) {
+            p = skipZeroTerminated(data, p, length);
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            p += 2;
+        }
+        if (p > length) {
+            throw new EOFException("Unexpected end of gzip header");
+        }
+        return p;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int p, int length) throws IOException {
+        while (p < length && data[p] != 0) {
+            p++;
+        }
+        if (p >= length) {
+            throw new EOFException("Unexpected end of gzip header");
+        }
+        return p + 1;
+    }
+
+    private static boolean isGzip(byte[] data, int pos, int length) {
+        return length - pos >= 2 && (data[pos] & 0xff) == 0x1f && (data[pos + 1] & 0xff) == 0x8b;
+    }
+
+    private static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xff) | ((data[pos + 1] & 0xff) << 8) | ((data[pos + 2] & 0xff) << 16) | ((data[pos + 3] & 0xff) << 24);
+    }
+
+    private static int estimateDecodedLength(byte[] base64) {
+        return base64.length / 4 * 3 + 3;
+    }
+
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    /**
+     * 线程内缓冲区超过该大小时不保留（偶发的超大章节不应长期占用每个线程的内存）
+     */
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    /**
+     * 按 gzip ISIZE 预分配输出的上限，超出后按需扩容（防止损坏数据导致超大分配）
+     */
+    private static final int MAX_INFLATED_HINT = 16 * 1024 * 1024;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * 解密流水线的线程内复用缓冲区；Inflater 随线程存活（解码线程数有限）
+     */
+    private static final class Buffers {
+        final Inflater inflater = new Inflater(true);
+        private Cipher cipher;
+        final CRC32 crc = new CRC32();
+        private byte[] decoded = new byte[0];
+        private byte[] plain = new byte[0];
+        private byte[] inflated = new byte[0];
+
+        /**
+         * Cipher.getInstance 需要查找 Provider（有同步开销），每个线程只创建一次
+         */
+        Cipher cipher() throws GeneralSecurityException {
+            if (cipher == null) {
+                cipher = Cipher.getInstance(AES_CBC_PKCS5);
             }
-            
-            return result.toString();
+            return cipher;
+        }
+
+        byte[] decoded(int size) {
+            if (decoded.length >= size) {
+                return decoded;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER) {
+                decoded = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] plain(int size) {
+            if (plain.length >= size) {
+                return plain;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER) {
+                plain = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] inflated(int size) {
+            if (inflated.length >= size) {
+                return inflated;
+            }
+            byte[] buffer = new byte[Math.max(size, 64)];
+            if (buffer.length <= MAX_RETAINED_BUFFER) {
+                inflated = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] growInflated(byte[] current) {
+            byte[] buffer = Arrays.copyOf(current, Math.max(64, current.length * 2));
+            if (buffer.length <= MAX_RETAINED_BUFFER) {
+                inflated = buffer;
+            }
+            return buffer;
         }
     }
-    
 }
@@ -0,0 +1,214 @@
+package com.anjia.unidbgserver.service;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 堆外章节存储：由若干个直接内存 slab 组成的环形日志。
+ * <p>
+ * - 新记录顺序追加到当前 slab，写满后切换到下一个 slab；环绕时整块回收最旧的 slab（FIFO 淘汰）；
+ * - 每个 slab 带代数（generation），回收时递增，索引中指向旧代数的记录自动失效；
+ * - 读不加锁：用 StampedLock 乐观读校验读取期间 slab 未被回收，写（追加/回收）串行化。
+ * <p>
+ * 存储的是已压缩的字节，序列化/压缩由调用方负责；数据不占用堆，也不参与 GC 扫描。
+ */
+public class OffHeapChapterStore {
+
+    private final int slabSize;
+    private final ByteBuffer[] slabs;
+    private final AtomicLongArray generations;
+    private final StampedLock[] slabLocks;
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+    private int currentSlab = 0;
+    private int writeOffset = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder recycledSlabs = new LongAdder();
+
+    /**
+     * @param maxBytes 堆外内存总预算
+     * @param slabSize 单个 slab 大小（单条记录不能超过该值）
+     */
+    public OffHeapChapterStore(long maxBytes, int slabSize) {
+        this.slabSize = Math.max(64 * 1024, slabSize);
+        int slabCount = (int) Math.max(2L, Math.min(Integer.MAX_VALUE, maxBytes / this.slabSize));
+        this.slabs = new ByteBuffer[slabCount];
+        this.generations = new AtomicLongArray(slabCount);
+        this.slabLocks = new StampedLock[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabLocks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * 写入一条记录（覆盖同 key 的旧记录）
+     *
+     * @param key 缓存 key
+     * @param value 已压缩的记录字节
+     * @param writtenAtMs 记录的原始写入时间（用于调用方判断 TTL）
+     * @return 是否写入成功（记录超过 slab 大小时放弃）
+     */
+    public boolean put(String key, byte[] value, long writtenAtMs) {
+        if (key == null || value == null || value.length > slabSize) {
+            return false;
+        }
+
+        synchronized (writeLock) {
+            if (writeOffset + value.length > slabSize) {
+                advanceSlab();
+            }
+            int slab = currentSlab;
+            ByteBuffer buffer = slabs[slab];
+            if (buffer == null) {
+                // 按需分配，避免启动时一次性占满堆外预算
+                buffer = ByteBuffer.allocateDirect(slabSize);
+                slabs[slab] = buffer;
+            }
+
+            ByteBuffer target = buffer.duplicate();
+            target.position(writeOffset);
+            target.put(value);
+
+            index.put(key, new Location(slab, generations.get(slab), writeOffset, value.length, writtenAtMs));
+            writeOffset += value.length;
+        }
+        writes.increment();
+        return true;
+    }
+
+    /**
+     * 读取记录；slab 已被回收或 key 不存在时返回 null
+     */
+    public Record get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            misses.increment();
+            return null;
+        }
+
+        StampedLock lock = slabLocks[location.slab];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp == 0L || generations.get(location.slab) != location.generation) {
+            index.remove(key, location);
+            misses.increment();
+            return null;
+        }
+
+        byte[] value = new byte[location.length];
+        ByteBuffer source = slabs[location.slab].duplicate();
+        source.position(location.offset);
+        source.get(value);
+
+        if (!lock.validate(stamp)) {
+            // 读取期间 slab 被回收，数据可能已被覆盖
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Record(value, location.writtenAtMs);
+    }
+
+    /**
+     * 是否存在有效记录（不计入命中统计）
+     */
+    public boolean contains(String key) {
+        Location location = index.get(key);
+        return location != null && generations.get(location.slab) == location.generation;
+    }
+
+    public void remove(String key) {
+        index.remove(key);
+    }
+
+    /**
+     * 切换到下一个 slab；环绕时回收其中的旧记录
+     */
+    private void advanceSlab() {
+        int next = (currentSlab + 1) % slabs.length;
+        StampedLock lock = slabLocks[next];
+        long stamp = lock.writeLock();
+        try {
+            if (slabs[next] != null) {
+                generations.incrementAndGet(next);
+                recycledSlabs.increment();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        final int recycled = next;
+        index.values().removeIf(location -> location.slab == recycled);
+        currentSlab = next;
+        writeOffset = 0;
+    }
+
+    public Map<String, Object> getStats() {
+        int allocated = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                allocated++;
+            }
+        }
+        long storedBytes = 0L;
+        for (Location location : index.values()) {
+            storedBytes += location.length;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", index.size());
+        stats.put("storedBytes", storedBytes);
+        stats.put("allocatedBytes", (long) allocated * slabSize);
+        stats.put("capacityBytes", (long) slabs.length * slabSize);
+        stats.put("slabSize", slabSize);
+        stats.put("hitCount", hits.sum());
+        stats.put("missCount", misses.sum());
+        stats.put("writeCount", writes.sum());
+        stats.put("recycledSlabs", recycledSlabs.sum());
+        return stats;
+    }
+
+    /**
+     * 读取结果
+     */
+    public static final class Record {
+        private final byte[] value;
+        private final long writtenAtMs;
+
+        Record(byte[] value, long writtenAtMs) {
+            this.value = value;
+            this.writtenAtMs = writtenAtMs;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public long getWrittenAtMs() {
+            return writtenAtMs;
+        }
+    }
+
+    private static final class Location {
+        final int slab;
+        final long generation;
+        final int offset;
+        final int length;
+        final long writtenAtMs;
+
+        Location(int slab, long generation, int offset, int length, long writtenAtMs) {
+            this.slab = slab;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+            this.writtenAtMs = writtenAtMs;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.anjia.unidbgserver.service;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * 服务过载：准入控制拒绝了请求（对应 HTTP 429）。
+ * 过载不是上游故障，不应计入自动重启的失败统计。
+ */
+public class OverloadedException extends RuntimeException {
+
+    private final String workload;
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String workload, long retryAfterSeconds, String message) {
+        super(message);
+        this.workload = workload;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * 异步链中的线程池拒绝/准入拒绝原样抛出（包装为 CompletionException），
+     * 由全局异常处理返回 429，而不是在 exceptionally 中变成普通的错误响应体
+     *
+     * @param cause 已解包的异常
+     */
+    public static void rethrowIfRejected(Throwable cause) {
+        if (cause instanceof TaskRejectedException || cause instanceof OverloadedException) {
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.anjia.unidbgserver.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 预取规划：目录按 size 对齐切分为互不重叠的窗口 [k*size, (k+1)*size)。
+ * - 同一窗口同时只有一个拉取任务，读者落在同一窗口时共享；
+ * - 发起拉取时只请求窗口内尚未缓存的章节，已缓存/已在拉取中的章节不会被重复请求。
+ */
+public class PrefetchPlanner {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inflight = new ConcurrentHashMap<>();
+
+    private final LongAdder windowsPlanned = new LongAdder();
+    private final LongAdder windowsShared = new LongAdder();
+    private final LongAdder chaptersFetched = new LongAdder();
+    private final LongAdder chaptersSkipped = new LongAdder();
+
+    /**
+     * 对齐窗口起点
+     */
+    public static int windowStart(int index, int size) {
+        return (index / size) * size;
+    }
+
+    public static String windowKey(String bookId, int windowStart, int size) {
+        return bookId + ":window:" + windowStart + ":" + size;
+    }
+
+    /**
+     * 确保窗口内的章节已缓存或正在拉取
+     *
+     * @param key 窗口 key（同一窗口必须一致）
+     * @param itemIds 窗口内的章节
+     * @param available 章节是否已可用（已缓存/已知不可取）
+     * @param fetcher 拉取缺失章节的任务
+     * @return 窗口拉取完成（或无需拉取）时完成
+     */
+    public CompletableFuture<Void> ensure(String key, List<String> itemIds, Predicate<String> available,
+                                          Function<List<String>, CompletableFuture<Void>> fetcher) {
+        CompletableFuture<Void> existing = inflight.get(key);
+        if (existing != null) {
+            windowsShared.increment();
+            return existing;
+        }
+
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        existing = inflight.putIfAbsent(key, created);
+        if (existing != null) {
+            windowsShared.increment();
+            return existing;
+        }
+
+        // 注册后再计算缺失章节：此后同窗口的读者都会等待本任务，不会再单独拉取
+        List<String> missing = new ArrayList<>(itemIds.size());
+        for (String itemId : itemIds) {
+            if (!available.test(itemId)) {
+                missing.add(itemId);
+            }
+        }
+        chaptersSkipped.add(itemIds.size() - missing.size());
+        if (missing.isEmpty()) {
+            inflight.remove(key, created);
+            created.complete(null);
+            return created;
+        }
+
+        windowsPlanned.increment();
+        chaptersFetched.add(missing.size());
+        CompletableFuture<Void> task;
+        try {
+            task = fetcher.apply(missing);
+        } catch (RuntimeException e) {
+            task = new CompletableFuture<>();
+            task.completeExceptionally(e);
+        }
+        task.whenComplete((v, e) -> {
+            inflight.remove(key, created);
+            if (e != null) {
+                created.completeExceptionally(e);
+            } else {
+                created.complete(null);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 该窗口是否正在拉取
+     */
+    public boolean isInFlight(String key) {
+        return inflight.containsKey(key);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("inflightWindows", inflight.size());
+        map.put("windowsPlanned", windowsPlanned.sum());
+        map.put("windowsShared", windowsShared.sum());
+        map.put("chaptersFetched", chaptersFetched.sum());
+        map.put("chaptersSkipped", chaptersSkipped.sum());
+        return map;
+    }
+}
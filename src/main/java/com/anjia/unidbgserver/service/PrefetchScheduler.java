@@ -0,0 +1,236 @@
+package com.anjia.unidbgserver.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 预取任务调度：在预取线程池之前排队，按优先级而不是提交顺序启动。
+ * - FOREGROUND：有读者正在等待的窗口，优先启动；
+ * - SPECULATIVE：预读窗口，可取消；上游限流已积压时不启动（直接取消）；
+ * - 有读者开始等待某个排队中的预读窗口时，提升为 FOREGROUND。
+ * - BULK：整本下载任务，排在预读之后，不取消也不因限流积压而跳过。
+ * 同时运行的任务数不超过预取线程池大小，线程池自身的 FIFO 队列基本不再积压。
+ */
+public class PrefetchScheduler {
+
+    public enum Priority {
+        FOREGROUND,
+        SPECULATIVE,
+        BULK
+    }
+
+    private final int maxConcurrent;
+    private final LongSupplier limiterBacklogMs;
+    private final long maxSpeculativeBacklogMs;
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+        Comparator.<Task>comparingInt(task -> task.priority.ordinal()).thenComparingLong(task -> task.sequence));
+    private final Map<String, Task> queuedByKey = new HashMap<>();
+    private long nextSequence = 0L;
+    private int running = 0;
+    private boolean draining = false;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * @param maxConcurrent 同时运行的任务上限
+     * @param limiterBacklogMs 上游限流当前积压（ms）
+     * @param maxSpeculativeBacklogMs 积压超过该值时不再启动预读任务
+     */
+    public PrefetchScheduler(int maxConcurrent, LongSupplier limiterBacklogMs, long maxSpeculativeBacklogMs) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.limiterBacklogMs = limiterBacklogMs;
+        this.maxSpeculativeBacklogMs = maxSpeculativeBacklogMs;
+    }
+
+    /**
+     * 提交任务；同 key 已在排队时合并（取较高优先级）
+     */
+    public CompletableFuture<Void> submit(String key, Priority priority, Supplier<CompletableFuture<Void>> work) {
+        Task task;
+        synchronized (this) {
+            Task queued = queuedByKey.get(key);
+            if (queued != null) {
+                raise(queued, priority);
+                return queued.future;
+            }
+            task = new Task(key, priority, nextSequence++, work);
+            queue.add(task);
+            queuedByKey.put(key, task);
+        }
+        drain();
+        return task.future;
+    }
+
+    /**
+     * 有读者在等待：排队中的任务提升为 FOREGROUND（未排队/已启动时无操作）
+     */
+    public void promote(String key) {
+        synchronized (this) {
+            Task queued = queuedByKey.get(key);
+            if (queued != null) {
+                raise(queued, Priority.FOREGROUND);
+            }
+        }
+    }
+
+    /**
+     * 取消 key 满足条件、仍在排队的预读任务
+     *
+     * @return 取消数量
+     */
+    public int cancelSpeculative(Predicate<String> keyFilter) {
+        List<Task> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Task> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.priority == Priority.SPECULATIVE && keyFilter.test(task.key)) {
+                    iterator.remove();
+                    queuedByKey.remove(task.key);
+                    removed.add(task);
+                }
+            }
+        }
+        for (Task task : removed) {
+            cancelled.increment();
+            task.future.completeExceptionally(new CancellationException("预读已取消"));
+        }
+        return removed.size();
+    }
+
+    private void raise(Task task, Priority priority) {
+        if (priority.ordinal() < task.priority.ordinal()) {
+            // PriorityQueue 不会感知元素变化：先移除再以新优先级放回
+            queue.remove(task);
+            task.priority = priority;
+            queue.add(task);
+            promoted.increment();
+        }
+    }
+
+    /**
+     * 启动排队任务直到并发上限；任务在锁外启动。
+     * 同一时间只有一个线程在循环启动任务：任务同步完成（如窗口已缓存）时回调再次进入 drain 会直接返回，
+     * 由外层循环继续启动后续任务，调用栈不会随连续同步完成的任务增长
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            drainLoop();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            Task next;
+            boolean shedTask = false;
+            synchronized (this) {
+                // 退出判断与释放 draining 在同一把锁内：之后的 submit/完成回调会自己进入 drain
+                if (running >= maxConcurrent || queue.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                next = queue.poll();
+                queuedByKey.remove(next.key);
+                if (next.priority == Priority.SPECULATIVE && limiterBacklogMs.getAsLong() > maxSpeculativeBacklogMs) {
+                    shedTask = true;
+                } else {
+                    running++;
+                }
+            }
+
+            if (shedTask) {
+                shed.increment();
+                next.future.completeExceptionally(new CancellationException("上游限流积压，跳过预读"));
+                continue;
+            }
+            start(next);
+        }
+    }
+
+    private void start(Task task) {
+        started.increment();
+        CompletableFuture<Void> work;
+        try {
+            work = task.work.get();
+        } catch (RuntimeException e) {
+            work = new CompletableFuture<>();
+            work.completeExceptionally(e);
+        }
+        work.whenComplete((v, e) -> {
+            synchronized (this) {
+                running--;
+            }
+            if (e != null) {
+                task.future.completeExceptionally(e);
+            } else {
+                task.future.complete(null);
+            }
+            drain();
+        });
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        int foreground = 0;
+        int bulk = 0;
+        for (Task task : queue) {
+            if (task.priority == Priority.FOREGROUND) {
+                foreground++;
+            } else if (task.priority == Priority.BULK) {
+                bulk++;
+            }
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("running", running);
+        map.put("maxConcurrent", maxConcurrent);
+        map.put("queuedForeground", foreground);
+        map.put("queuedSpeculative", queue.size() - foreground - bulk);
+        map.put("queuedBulk", bulk);
+        map.put("started", started.sum());
+        map.put("promoted", promoted.sum());
+        map.put("cancelled", cancelled.sum());
+        map.put("shed", shed.sum());
+        return map;
+    }
+
+    private static final class Task {
+        final String key;
+        final long sequence;
+        final Supplier<CompletableFuture<Void>> work;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Priority priority;
+
+        Task(String key, Priority priority, long sequence, Supplier<CompletableFuture<Void>> work) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+    }
+}
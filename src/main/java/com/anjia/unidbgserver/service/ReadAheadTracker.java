@@ -0,0 +1,138 @@
+package com.anjia.unidbgserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 顺序阅读检测 + 预读距离估算（按读者维度：书籍 + 设备，没有设备标识时按书籍）：
+ * - 连续几次读取的章节位置递增（允许跳过 1 章）即认为是顺序阅读；
+ * - 顺序阅读中出现一次乱序读取时先不打断（可能是同书的另一位读者），
+ *   从新位置继续顺序读取才确认为跳读；
+ * - 预读距离 = 一次上游拉取耗时内读者大约会读完的章节数，限制在 [minDistance, maxDistance]；
+ *   读得越快、上游越慢，预读越远。
+ */
+public class ReadAheadTracker {
+
+    /**
+     * 连续顺序读取达到该次数后才开始预读，避免随机跳读触发无效拉取
+     */
+    private static final int MIN_SEQUENTIAL_RUN = 2;
+
+    private final Cache<String, ReadingState> states;
+    private final AtomicLong avgFetchMs = new AtomicLong(0L);
+    private final LongAdder sequentialReads = new LongAdder();
+
+    public ReadAheadTracker(long maxReaders, long idleMs) {
+        this.states = Caffeine.newBuilder()
+            .maximumSize(Math.max(1L, maxReaders))
+            .expireAfterAccess(Math.max(1000L, idleMs), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    /**
+     * 记录一次读取
+     *
+     * @param readerId 读者标识（设备ID），可为 null
+     * @return 需要预读的章节数（当前位置之后）；尚未形成顺序阅读时返回 0，顺序阅读被跳读打断时返回 -1
+     */
+    public int onRead(String bookId, String readerId, int index, int minDistance, int maxDistance) {
+        String key = readerId == null || readerId.isEmpty() ? bookId : bookId + "#" + readerId;
+        ReadingState state = states.get(key, k -> new ReadingState(bookId));
+        long now = System.currentTimeMillis();
+        long msPerChapter;
+        synchronized (state) {
+            int step = index - state.lastIndex;
+            if (state.lastIndex >= 0 && step >= 1 && step <= 2) {
+                state.jumpIndex = -1;
+                state.run++;
+                long perChapter = Math.max(1L, (now - state.lastReadMs) / step);
+                // EWMA(1/4)：平滑偶尔的停顿
+                state.msPerChapter = state.msPerChapter <= 0 ? perChapter : (state.msPerChapter * 3 + perChapter) / 4;
+            } else if (step != 0) {
+                boolean wasSequential = state.run >= MIN_SEQUENTIAL_RUN;
+                if (wasSequential) {
+                    int jumpStep = index - state.jumpIndex;
+                    if (state.jumpIndex < 0 || jumpStep < 1 || jumpStep > 2) {
+                        // 单次乱序读取：保留当前顺序阅读位置，等下一次读取确认
+                        state.jumpIndex = index;
+                        return 0;
+                    }
+                }
+                // 跳读已确认（从跳读位置继续顺序读），或本来就不是顺序阅读
+                state.jumpIndex = -1;
+                state.run = wasSequential ? 1 : 0;
+                state.lastIndex = index;
+                state.lastReadMs = now;
+                return wasSequential ? -1 : 0;
+            }
+            state.lastIndex = index;
+            state.lastReadMs = now;
+            if (state.run < MIN_SEQUENTIAL_RUN) {
+                return 0;
+            }
+            msPerChapter = state.msPerChapter;
+        }
+
+        sequentialReads.increment();
+        long fetchMs = avgFetchMs.get();
+        int distance = minDistance;
+        if (fetchMs > 0 && msPerChapter > 0) {
+            // 多留一倍余量：拉取排队、签名等待等波动
+            distance = (int) Math.min(Integer.MAX_VALUE, 2 * ((fetchMs + msPerChapter - 1) / msPerChapter));
+        }
+        return Math.max(minDistance, Math.min(maxDistance, distance));
+    }
+
+    /**
+     * 书中是否还有处于顺序阅读的读者需要 [start, end) 这段章节（位于其当前位置之后 maxDistance 章以内）
+     */
+    public boolean isNeeded(String bookId, int start, int end, int maxDistance) {
+        for (ReadingState state : states.asMap().values()) {
+            if (!state.bookId.equals(bookId)) {
+                continue;
+            }
+            synchronized (state) {
+                if (state.run >= MIN_SEQUENTIAL_RUN && state.lastIndex < end
+                    && (long) state.lastIndex + maxDistance >= start) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录一次预取拉取耗时（EWMA）
+     */
+    public void recordFetch(long elapsedMs) {
+        long sample = Math.max(1L, elapsedMs);
+        avgFetchMs.getAndUpdate(prev -> prev <= 0 ? sample : (prev * 3 + sample) / 4);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("trackedReaders", states.estimatedSize());
+        map.put("sequentialReads", sequentialReads.sum());
+        map.put("avgFetchMs", avgFetchMs.get());
+        return map;
+    }
+
+    private static final class ReadingState {
+        final String bookId;
+        int lastIndex = -1;
+        int jumpIndex = -1;
+        long lastReadMs;
+        int run;
+        long msPerChapter;
+
+        ReadingState(String bookId) {
+            this.bookId = bookId;
+        }
+    }
+}
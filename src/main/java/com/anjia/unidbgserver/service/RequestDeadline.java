@@ -0,0 +1,207 @@
+package com.anjia.unidbgserver.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 请求级截止时间：在控制器入口创建，随异步任务传递到签名队列、上游限流和 HTTP 客户端。
+ * 客户端断开或异步超时后会被取消，尚未开始的上游调用直接放弃，避免浪费上游配额和模拟器时间。
+ * <p>
+ * 通过线程上下文传递：服务层在提交异步任务时捕获 {@link #current()}，任务执行期间用 {@link #propagate} 重新绑定。
+ * <p>
+ * 同时记录请求在本地线程池队列和签名实例上的等待，超时时据此区分本地过载与上游缓慢。
+ */
+public final class RequestDeadline {
+
+    /**
+     * 请求属性名（控制器层保存截止时间，超时/出错时据此取消）
+     */
+    public static final String REQUEST_ATTRIBUTE = RequestDeadline.class.getName();
+
+    private static final RequestDeadline NONE = new RequestDeadline(Long.MAX_VALUE, false);
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long createdNanos = System.nanoTime();
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private volatile boolean cancelled;
+    private volatile String cancelReason;
+
+    /**
+     * 正在本地排队（线程池队列/签名实例）的任务数，以及已结束的本地等待累计时长
+     */
+    private final AtomicInteger localWaiters = new AtomicInteger();
+    private final AtomicLong localWaitNanos = new AtomicLong();
+
+    private RequestDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * 创建一个在 timeoutMs 后到期的截止时间
+     */
+    public static RequestDeadline after(long timeoutMs) {
+        if (timeoutMs <= 0) {
+            return NONE;
+        }
+        return new RequestDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs), true);
+    }
+
+    /**
+     * 无截止时间（后台任务、跨请求共享的预取等）
+     */
+    public static RequestDeadline none() {
+        return NONE;
+    }
+
+    /**
+     * 当前线程绑定的截止时间，未绑定时返回 {@link #none()}
+     */
+    public static RequestDeadline current() {
+        RequestDeadline deadline = CURRENT.get();
+        return deadline != null ? deadline : NONE;
+    }
+
+    /**
+     * 绑定到当前线程，返回之前绑定的值（用于恢复）
+     */
+    public static RequestDeadline bind(RequestDeadline deadline) {
+        RequestDeadline previous = CURRENT.get();
+        if (deadline == null || deadline == NONE) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * 包装异步任务：执行期间绑定指定截止时间，结束后恢复
+     */
+    public static <T> Supplier<T> propagate(RequestDeadline deadline, Supplier<T> task) {
+        // 包装在提交时创建，到开始执行之间即为线程池排队时间
+        long queuedAt = deadline != null ? deadline.beginLocalWait() : 0L;
+        return () -> {
+            if (deadline != null) {
+                deadline.endLocalWait(queuedAt);
+            }
+            RequestDeadline previous = bind(deadline);
+            try {
+                return task.get();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * 在无截止时间的上下文中执行（用于跨请求共享的任务，避免被首个调用方的取消连带中断）
+     */
+    public static <T> T detached(Supplier<T> task) {
+        return propagate(NONE, task).get();
+    }
+
+    /**
+     * 取消（客户端断开或异步超时）
+     */
+    public void cancel(String reason) {
+        if (!bounded) {
+            return;
+        }
+        this.cancelReason = reason;
+        this.cancelled = true;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 已取消或已超过截止时间
+     */
+    public boolean isExpired() {
+        return bounded && (cancelled || System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /**
+     * 剩余时间（纳秒）；无截止时间时返回 Long.MAX_VALUE
+     */
+    public long remainingNanos() {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        if (cancelled) {
+            return 0L;
+        }
+        return Math.max(0L, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 剩余时间（毫秒）；无截止时间时返回 Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        long remaining = remainingNanos();
+        return remaining == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(remaining);
+    }
+
+    /**
+     * 开始一次本地等待（线程池排队、等待签名实例），返回开始时间，结束时传给 {@link #endLocalWait}
+     */
+    public long beginLocalWait() {
+        if (!bounded) {
+            return 0L;
+        }
+        localWaiters.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束一次本地等待
+     */
+    public void endLocalWait(long startedNanos) {
+        if (!bounded) {
+            return;
+        }
+        localWaiters.decrementAndGet();
+        localWaitNanos.addAndGet(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * 本请求的耗时是否主要花在本地排队上：仍有任务在本地排队，或已结束的本地等待占到已用时间的一半以上
+     */
+    public boolean isLocalWaitDominant() {
+        if (!bounded) {
+            return false;
+        }
+        if (localWaiters.get() > 0) {
+            return true;
+        }
+        long elapsed = System.nanoTime() - createdNanos;
+        return elapsed > 0 && localWaitNanos.get() * 2 >= elapsed;
+    }
+
+    /**
+     * 已结束的本地等待累计时长（毫秒）
+     */
+    public long getLocalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(localWaitNanos.get());
+    }
+
+    /**
+     * 若已取消/超时则抛出 {@link DeadlineExceededException}
+     *
+     * @param stage 当前阶段（用于日志/错误信息）
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage, cancelled ? cancelReason : "deadline");
+        }
+    }
+}
@@ -19,7 +19,20 @@ public class UpstreamRateLimiter {
     private final FQDownloadProperties downloadProperties;
     private final AtomicLong nextAllowedAtNanos = new AtomicLong(0L);
 
+    /**
+     * 取消检查的最大休眠粒度
+     */
+    private static final long PARK_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * 获取一次上游请求许可。
+     * 会检查当前线程绑定的 {@link RequestDeadline}：截止前拿不到许可则不占用名额直接放弃，
+     * 等待期间请求被取消也会提前返回（抛出 {@link DeadlineExceededException}）。
+     */
     public void acquire() {
+        RequestDeadline deadline = RequestDeadline.current();
+        deadline.check("上游限流等待");
+
         long intervalMs = downloadProperties.getRequestIntervalMs();
         if (intervalMs <= 0) {
             return;
@@ -30,14 +43,39 @@ public class UpstreamRateLimiter {
             long now = System.nanoTime();
             long prev = nextAllowedAtNanos.get();
             long start = Math.max(now, prev);
+            long wait = start - now;
+            if (wait > deadline.remainingNanos()) {
+                // 截止前轮不到，不占用名额
+                throw new DeadlineExceededException("上游限流等待", "deadline");
+            }
             long next = start + intervalNanos;
             if (nextAllowedAtNanos.compareAndSet(prev, next)) {
-                long wait = start - now;
-                if (wait > 0) {
-                    LockSupport.parkNanos(wait);
-                }
+                parkUntil(start, deadline);
+                return;
+            }
+        }
+    }
+
+    private static void parkUntil(long startNanos, RequestDeadline deadline) {
+        while (true) {
+            long wait = startNanos - System.nanoTime();
+            if (wait <= 0) {
                 return;
             }
+            if (!deadline.isBounded()) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            deadline.check("上游限流等待");
+            LockSupport.parkNanos(Math.min(wait, PARK_SLICE_NANOS));
         }
     }
+
+    /**
+     * 当前已发放但尚未到期的许可积压（ms），即新请求至少需要等待的时间
+     */
+    public long getBacklogMs() {
+        long backlog = nextAllowedAtNanos.get() - System.nanoTime();
+        return backlog > 0 ? TimeUnit.NANOSECONDS.toMillis(backlog) : 0L;
+    }
 }
@@ -0,0 +1,151 @@
+package com.anjia.unidbgserver.utils;
+
+/**
+ * 章节 HTML 解析工具类
+ * 单次顺序扫描章节 HTML，同时得到正文、标题和字数（不使用正则）
+ * <p>
+ * 章节格式：{@code <h1><blk>标题</blk></h1><p><blk>段落</blk></p>...}
+ * 正文为各 {@code <blk>} 的文本（去首尾空白、跳过空段落）按行拼接；
+ * 没有 {@code <blk>} 时退化为去除全部标签后的文本
+ */
+public final class ChapterHtmlUtils {
+
+    private static final ChapterText EMPTY = new ChapterText("", null);
+
+    private ChapterHtmlUtils() {}
+
+    /**
+     * 解析章节 HTML
+     *
+     * @param html 解密后的章节 HTML
+     * @return 正文/标题/字数，标题取第一个 {@code <h1>...</h1>} 内的 {@code <blk>}，没有时为 null
+     */
+    public static ChapterText parse(String html) {
+        if (html == null || html.isEmpty()) {
+            return EMPTY;
+        }
+
+        int length = html.length();
+        StringBuilder text = new StringBuilder(length / 2);
+        String title = null;
+        String h1Text = null;
+        // 0: 尚未遇到 <h1>，1: 在 <h1> 内，2: 第一个 <h1> 已结束
+        int h1State = 0;
+
+        int i = html.indexOf('<');
+        while (i >= 0) {
+            if (startsWithIgnoreCase(html, i + 1, "blk")) {
+                int open = html.indexOf('>', i + 4);
+                if (open < 0) {
+                    break;
+                }
+                int next = html.indexOf('<', open + 1);
+                if (next < 0) {
+                    break;
+                }
+                // 只取纯文本的 <blk>，内部嵌套其他标签的忽略
+                if (startsWithIgnoreCase(html, next, "</blk>")) {
+                    int start = open + 1;
+                    int end = next;
+                    while (start < end && html.charAt(start) <= ' ') {
+                        start++;
+                    }
+                    while (end > start && html.charAt(end - 1) <= ' ') {
+                        end--;
+                    }
+                    if (start < end) {
+                        text.append(html, start, end).append('\n');
+                        if (h1State == 1 && h1Text == null) {
+                            h1Text = html.substring(start, end);
+                        }
+                    }
+                    i = html.indexOf('<', next + 6);
+                } else {
+                    i = next;
+                }
+                continue;
+            }
+            if (h1State == 0 && startsWithIgnoreCase(html, i + 1, "h1")) {
+                h1State = 1;
+            } else if (h1State == 1 && startsWithIgnoreCase(html, i + 1, "/h1")) {
+                // 标题在 </h1> 处确定，未闭合的 <h1> 不作为标题
+                h1State = 2;
+                title = h1Text;
+            }
+            i = html.indexOf('<', i + 1);
+        }
+
+        if (text.length() > 0) {
+            text.setLength(text.length() - 1);
+            return new ChapterText(text.toString(), title);
+        }
+        return new ChapterText(stripTags(html), title);
+    }
+
+    /**
+     * 去除全部标签（{@code <...>}），结果去首尾空白
+     */
+    static String stripTags(String html) {
+        int length = html.length();
+        StringBuilder text = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            int lt = html.indexOf('<', i);
+            if (lt < 0) {
+                text.append(html, i, length);
+                break;
+            }
+            text.append(html, i, lt);
+            int gt = html.indexOf('>', lt + 1);
+            if (gt < 0) {
+                text.append(html, lt, length);
+                break;
+            }
+            if (gt == lt + 1) {
+                // "<>" 不是标签，原样保留
+                text.append("<>");
+            }
+            i = gt + 1;
+        }
+        return text.toString().trim();
+    }
+
+    private static boolean startsWithIgnoreCase(String s, int offset, String prefix) {
+        return s.regionMatches(true, offset, prefix, 0, prefix.length());
+    }
+
+    /**
+     * 章节解析结果
+     */
+    public static final class ChapterText {
+
+        private final String text;
+        private final String title;
+
+        ChapterText(String text, String title) {
+            this.text = text;
+            this.title = title;
+        }
+
+        /**
+         * 正文（按行分段）
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * 从 {@code <h1>} 中提取的标题，没有时为 null
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * 字数（正文字符数）
+         */
+        public int getWordCount() {
+            return text.length();
+        }
+    }
+}
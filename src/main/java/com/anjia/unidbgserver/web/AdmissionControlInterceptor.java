@@ -0,0 +1,33 @@
+package com.anjia.unidbgserver.web;
+
+import com.anjia.unidbgserver.service.AdmissionControlService;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 控制器层准入拦截：在进入控制器（占用线程池和异步超时计时）之前判断是否过载，
+ * 过载时抛出 OverloadedException，由 GlobalExceptionHandler 返回 429 + Retry-After
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private final AdmissionControlService admissionControlService;
+    private final String workload;
+
+    public AdmissionControlInterceptor(AdmissionControlService admissionControlService, String workload) {
+        this.admissionControlService = admissionControlService;
+        this.workload = workload;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步分派（结果回写）不再重复准入
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        admissionControlService.admit(workload);
+        return true;
+    }
+}
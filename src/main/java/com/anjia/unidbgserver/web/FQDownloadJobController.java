@@ -0,0 +1,100 @@
+package com.anjia.unidbgserver.web;
+
+import com.anjia.unidbgserver.dto.FQChapterFormat;
+import com.anjia.unidbgserver.dto.FQDownloadJob;
+import com.anjia.unidbgserver.dto.FQNovelResponse;
+import com.anjia.unidbgserver.service.FQDownloadJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * 整本下载任务控制器
+ * 提交任务后轮询进度，或以 NDJSON 流式读取已下载的章节；任务进度持久化，重启后继续
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "/api/fqnovel/jobs", produces = MediaType.APPLICATION_JSON_VALUE)
+public class FQDownloadJobController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private FQDownloadJobService downloadJobService;
+
+    /**
+     * 提交整本下载任务（同一本书已有任务时复用）
+     *
+     * @param bookId 书籍ID
+     * @return 任务进度
+     */
+    @PostMapping("/{bookId}")
+    public FQNovelResponse<FQDownloadJob> submit(@PathVariable String bookId) {
+        if (bookId == null || bookId.trim().isEmpty()) {
+            return FQNovelResponse.error("书籍ID不能为空");
+        }
+        return FQNovelResponse.success(downloadJobService.submit(bookId.trim()));
+    }
+
+    /**
+     * 全部任务
+     */
+    @GetMapping
+    public FQNovelResponse<List<FQDownloadJob>> list() {
+        return FQNovelResponse.success(downloadJobService.list());
+    }
+
+    /**
+     * 任务进度
+     *
+     * @param jobId 任务ID
+     */
+    @GetMapping("/{jobId}/status")
+    public FQNovelResponse<FQDownloadJob> get(@PathVariable String jobId) {
+        FQDownloadJob job = downloadJobService.get(jobId);
+        return job != null ? FQNovelResponse.success(job) : FQNovelResponse.error("任务不存在");
+    }
+
+    /**
+     * 取消任务（之后重新提交同一本书会从检查点继续）
+     *
+     * @param jobId 任务ID
+     */
+    @DeleteMapping("/{jobId}")
+    public FQNovelResponse<FQDownloadJob> cancel(@PathVariable String jobId) {
+        FQDownloadJob job = downloadJobService.cancel(jobId);
+        return job != null ? FQNovelResponse.success(job) : FQNovelResponse.error("任务不存在");
+    }
+
+    /**
+     * 按目录顺序流式返回章节（NDJSON，每行一个章节响应），尚未下载到的章节会等待；
+     * 连接受异步请求超时限制，断开后以 from=已收到行数 继续读取
+     *
+     * @param jobId 任务ID
+     * @param from 起始位置（目录下标，从 0 开始）
+     * @param format 返回格式：text / raw / all（默认）
+     */
+    @GetMapping(path = "/{jobId}/chapters", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamChapters(@PathVariable String jobId,
+                                                                @RequestParam(defaultValue = "0") int from,
+                                                                @RequestParam(required = false) String format) {
+        if (downloadJobService.get(jobId) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        FQChapterFormat chapterFormat = FQChapterFormat.parse(format);
+        if (chapterFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("流式读取下载任务章节 - jobId: {}, from: {}", jobId, from);
+        }
+        StreamingResponseBody body = out -> downloadJobService.streamChapters(jobId, from, chapterFormat, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+}
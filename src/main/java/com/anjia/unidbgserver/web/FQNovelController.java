@@ -6,14 +6,19 @@ import com.anjia.unidbgserver.dto.FQNovelRequest;
 import com.anjia.unidbgserver.dto.FQNovelResponse;
 import com.anjia.unidbgserver.dto.FQBatchChapterRequest;
 import com.anjia.unidbgserver.dto.FQBatchChapterResponse;
+import com.anjia.unidbgserver.dto.FQBatchChapterEvent;
 import com.anjia.unidbgserver.service.FQChapterPrefetchService;
 import com.anjia.unidbgserver.service.FQNovelService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -27,12 +32,19 @@ import java.util.concurrent.CompletableFuture;
 @RequestMapping(path = "/api/fqnovel", produces = MediaType.APPLICATION_JSON_VALUE)
 public class FQNovelController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final MediaType NDJSON_UTF8 = MediaType.parseMediaType(NDJSON + ";charset=UTF-8");
+
     @Autowired
     private FQNovelService fqNovelService;
 
     @Autowired
     private FQChapterPrefetchService fqChapterPrefetchService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取书籍信息
      * 
@@ -62,6 +74,7 @@ public class FQNovelController {
      * @param deviceId 设备ID (可选)
      * @param iid 应用ID (可选)
      * @param token 用户token (可选)
+     * @param format 返回格式：text（只返回纯文本）/ raw（只返回 HTML）/ all（默认）
      * @return 章节内容信息
      */
     @GetMapping("/chapter/{bookId}/{chapterId}")
@@ -71,6 +84,7 @@ public class FQNovelController {
             @RequestParam(required = false) String deviceId,
             @RequestParam(required = false) String iid,
             @RequestParam(required = false) String token,
+            @RequestParam(required = false) String format,
             HttpServletRequest httpRequest) {
         
         if (log.isDebugEnabled()) {
@@ -96,6 +110,7 @@ public class FQNovelController {
         request.setDeviceId(deviceId);
         request.setIid(iid);
         request.setToken(token);
+        request.setFormat(format);
         
         // 提取额外的请求头
         Map<String, String> extraHeaders = extractExtraHeaders(httpRequest);
@@ -155,6 +170,63 @@ public class FQNovelController {
         return fqNovelService.getBatchChapterContent(request);
     }
 
+    /**
+     * 批量获取章节内容（NDJSON 流式）：每个章节解密后立即写出一行，
+     * 事件顺序 book → chapter/error → end，参数与 /chapters/batch 一致
+     *
+     * @param request 批量章节请求
+     * @return 逐行写出的 FQBatchChapterEvent
+     */
+    @PostMapping(path = "/chapters/batch/stream", produces = NDJSON)
+    public ResponseBodyEmitter streamBatchChapterContent(@RequestBody FQBatchChapterRequest request) {
+        if (log.isDebugEnabled()) {
+            log.debug("流式批量获取章节内容请求(NDJSON) - bookId: {}, range: {}",
+                request.getBookId(), request.getChapterRange());
+        }
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        fqNovelService.streamBatchChapterContent(request, new FQNovelService.BatchChapterSink() {
+            @Override
+            public void send(FQBatchChapterEvent event) throws IOException {
+                emitter.send(objectMapper.writeValueAsString(event) + "\n", NDJSON_UTF8);
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 批量获取章节内容（SSE 流式）：事件名为事件类型（book / chapter / error / end），data 为 FQBatchChapterEvent
+     *
+     * @param request 批量章节请求
+     * @return SSE 事件流
+     */
+    @PostMapping(path = "/chapters/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBatchChapterContentSse(@RequestBody FQBatchChapterRequest request) {
+        if (log.isDebugEnabled()) {
+            log.debug("流式批量获取章节内容请求(SSE) - bookId: {}, range: {}",
+                request.getBookId(), request.getChapterRange());
+        }
+
+        SseEmitter emitter = new SseEmitter();
+        fqNovelService.streamBatchChapterContent(request, new FQNovelService.BatchChapterSink() {
+            @Override
+            public void send(FQBatchChapterEvent event) throws IOException {
+                emitter.send(SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
     /**
      * 从HTTP请求中提取额外的请求头
      * 过滤掉标准请求头，只保留自定义头
@@ -1,6 +1,7 @@
 package com.anjia.unidbgserver.web;
 
 import com.anjia.unidbgserver.dto.*;
+import com.anjia.unidbgserver.service.FQDirectoryCacheService;
 import com.anjia.unidbgserver.service.FQSearchService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,9 @@ public class FQSearchController {
     @Autowired
     private FQSearchService fqSearchService;
 
+    @Autowired
+    private FQDirectoryCacheService directoryCacheService;
+
     /**
      * 搜索书籍 (GET方式)
      *
@@ -127,11 +131,8 @@ public class FQSearchController {
             );
         }
 
-        // 构建目录请求
-        FQDirectoryRequest directoryRequest = new FQDirectoryRequest();
-        directoryRequest.setBookId(bookId.trim());
-
-        return fqSearchService.getBookDirectory(directoryRequest);
+        // 默认参数的目录请求走缓存（stale-while-revalidate）
+        return directoryCacheService.getDirectory(bookId.trim());
     }
 
     /**
@@ -154,9 +155,21 @@ public class FQSearchController {
             );
         }
 
+        // 带 md5 等条件参数的请求需要上游按参数处理，直接透传
+        if (isDefaultDirectoryRequest(directoryRequest)) {
+            return directoryCacheService.getDirectory(directoryRequest.getBookId().trim());
+        }
         return fqSearchService.getBookDirectory(directoryRequest);
     }
 
+    private static boolean isDefaultDirectoryRequest(FQDirectoryRequest request) {
+        return (request.getBookType() == null || request.getBookType() == 0)
+            && !Boolean.FALSE.equals(request.getNeedVersion())
+            && request.getItemDataListMd5() == null
+            && request.getCatalogDataMd5() == null
+            && request.getBookInfoMd5() == null;
+    }
+
     /**
      * 快速搜索 (简化的搜索接口，只需要关键词)
      *
@@ -0,0 +1,80 @@
+package com.anjia.unidbgserver.web;
+
+import com.anjia.unidbgserver.config.InstrumentedTaskExecutor;
+import com.anjia.unidbgserver.service.AdmissionControlService;
+import com.anjia.unidbgserver.service.FQChapterPrefetchService;
+import com.anjia.unidbgserver.service.FQDownloadJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态控制器
+ * 提供线程池饱和度等运行指标，便于调参与排查
+ */
+@RestController
+@RequestMapping(path = "/api/fqstatus", produces = MediaType.APPLICATION_JSON_VALUE)
+public class FQStatusController {
+
+    @Autowired
+    private List<InstrumentedTaskExecutor> executors;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private FQChapterPrefetchService fqChapterPrefetchService;
+
+    @Autowired
+    private FQDownloadJobService fqDownloadJobService;
+
+    /**
+     * 获取各负载线程池状态
+     *
+     * @return 线程池状态，按负载类型分组
+     */
+    @GetMapping("/executors")
+    public Map<String, Object> getExecutorStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (InstrumentedTaskExecutor executor : executors) {
+            status.put(executor.getWorkload(), executor.snapshot());
+        }
+        return status;
+    }
+
+    /**
+     * 获取准入控制状态（拒绝次数、预估等待时间等）
+     *
+     * @return 准入控制状态
+     */
+    @GetMapping("/admission")
+    public Map<String, Object> getAdmissionStatus() {
+        return admissionControlService.getStatus();
+    }
+
+    /**
+     * 获取缓存统计（命中率、淘汰数等）
+     *
+     * @return 缓存统计，按缓存名称分组
+     */
+    @GetMapping("/caches")
+    public Map<String, Object> getCacheStatus() {
+        return fqChapterPrefetchService.getCacheStats();
+    }
+
+    /**
+     * 获取整本下载任务统计（运行中/排队数）
+     *
+     * @return 下载任务统计
+     */
+    @GetMapping("/jobs")
+    public Map<String, Object> getJobStatus() {
+        return fqDownloadJobService.getStats();
+    }
+}
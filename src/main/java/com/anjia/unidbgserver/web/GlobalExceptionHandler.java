@@ -1,8 +1,12 @@
 package com.anjia.unidbgserver.web;
 
 import com.anjia.unidbgserver.service.AutoRestartService;
+import com.anjia.unidbgserver.service.OverloadedException;
+import com.anjia.unidbgserver.service.RequestDeadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +14,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,9 +26,15 @@ public class GlobalExceptionHandler {
     private final AutoRestartService autoRestartService;
 
     @ExceptionHandler(AsyncRequestTimeoutException.class)
-    public ResponseEntity<Map<String, Object>> handleAsyncTimeout(AsyncRequestTimeoutException ex) {
-        autoRestartService.recordFailure("ASYNC_TIMEOUT");
-        log.warn("异步请求超时", ex);
+    public ResponseEntity<Map<String, Object>> handleAsyncTimeout(AsyncRequestTimeoutException ex, HttpServletRequest request) {
+        Object deadline = request.getAttribute(RequestDeadline.REQUEST_ATTRIBUTE);
+        if (deadline instanceof RequestDeadline && ((RequestDeadline) deadline).isLocalWaitDominant()) {
+            // 本请求的时间主要耗在本地线程池/签名排队上，不是上游故障，不计入自动重启统计
+            log.warn("异步请求超时（本地排队 {}ms，不计入失败统计）", ((RequestDeadline) deadline).getLocalWaitMillis());
+        } else {
+            autoRestartService.recordFailure("ASYNC_TIMEOUT");
+            log.warn("异步请求超时", ex);
+        }
 
         Map<String, Object> body = new HashMap<>();
         body.put("success", false);
@@ -34,5 +45,28 @@ public class GlobalExceptionHandler {
             .contentType(MediaType.APPLICATION_JSON)
             .body(body);
     }
-}
 
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleOverloaded(OverloadedException ex) {
+        return tooManyRequests(ex.getMessage(), ex.getRetryAfterSeconds());
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleTaskRejected(TaskRejectedException ex) {
+        log.warn("线程池已满，拒绝请求: {}", ex.getMessage());
+        return tooManyRequests("服务繁忙，请稍后重试", 1L);
+    }
+
+    private ResponseEntity<Map<String, Object>> tooManyRequests(String message, long retryAfterSeconds) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("code", 429);
+        body.put("message", message);
+        body.put("retryAfter", retryAfterSeconds);
+        body.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+}
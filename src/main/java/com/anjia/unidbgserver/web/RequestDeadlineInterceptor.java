@@ -0,0 +1,97 @@
+package com.anjia.unidbgserver.web;
+
+import com.anjia.unidbgserver.service.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 请求截止时间的创建与取消：
+ * - 进入控制器前按异步超时（或客户端通过 X-Request-Timeout-Ms 给出的更短超时）创建 {@link RequestDeadline}，
+ *   绑定到请求线程，服务层提交异步任务时捕获并向下传递；
+ * - 异步请求超时、出错（如客户端断开）或结束时取消，尚未开始的签名/限流等待/上游请求随之放弃。
+ */
+@Slf4j
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor, DeferredResultProcessingInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final long defaultTimeoutMs;
+
+    public RequestDeadlineInterceptor(long defaultTimeoutMs) {
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        RequestDeadline deadline = RequestDeadline.after(resolveTimeoutMs(request));
+        request.setAttribute(RequestDeadline.REQUEST_ATTRIBUTE, deadline);
+        RequestDeadline.bind(deadline);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 请求线程归还容器，异步任务已各自捕获截止时间
+        RequestDeadline.bind(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.bind(null);
+    }
+
+    @Override
+    public <T> boolean handleTimeout(NativeWebRequest request, DeferredResult<T> deferredResult) {
+        cancel(request, "timeout");
+        return true;
+    }
+
+    @Override
+    public <T> boolean handleError(NativeWebRequest request, DeferredResult<T> deferredResult, Throwable t) {
+        cancel(request, "client error: " + t.getClass().getSimpleName());
+        return true;
+    }
+
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> deferredResult) {
+        cancel(request, "completed");
+    }
+
+    private void cancel(NativeWebRequest request, String reason) {
+        Object deadline = request.getAttribute(RequestDeadline.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (deadline instanceof RequestDeadline) {
+            RequestDeadline requestDeadline = (RequestDeadline) deadline;
+            if (!requestDeadline.isCancelled() && log.isDebugEnabled()) {
+                log.debug("取消请求截止时间 - reason: {}", reason);
+            }
+            requestDeadline.cancel(reason);
+        }
+    }
+
+    private long resolveTimeoutMs(HttpServletRequest request) {
+        long timeoutMs = defaultTimeoutMs;
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null && !header.trim().isEmpty()) {
+            try {
+                long requested = Long.parseLong(header.trim());
+                if (requested > 0 && (timeoutMs <= 0 || requested < timeoutMs)) {
+                    timeoutMs = requested;
+                }
+            } catch (NumberFormatException ignored) {
+                // 非法值忽略，使用默认超时
+            }
+        }
+        return timeoutMs;
+    }
+}